@@ -0,0 +1,106 @@
+package com.fox.brian.binpack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.fox.brian.binpack.algorithms.AlgorithmFactory;
+import com.fox.brian.binpack.util.PackExecutors;
+
+/**
+ * Packs many independent jobs, each a list of bins, concurrently on a 
+ * shared pool.  Every job is searched on a single worker, so the pool 
+ * stays busy with whole jobs rather than with the pieces of one.  Each 
+ * job gets a fresh AlgorithmFactory, which holds nothing of the job once 
+ * it is done; the containers it searches with are still reused per 
+ * worker thread.
+ */
+public class BatchPacker<T> {
+	
+	private final ExecutorService executor;
+	private AlgorithmFactory.SearchStrategy strategy = AlgorithmFactory.SearchStrategy.ADAPTIVE;
+	
+	
+	/**
+	 * Creates a batch packer on the {@link PackExecutors#compute()} pool.
+	 */
+	public BatchPacker() {
+		this(PackExecutors.compute());
+	}
+	
+	
+	/**
+	 * @param executor the pool the jobs run on.
+	 */
+	public BatchPacker(ExecutorService executor) {
+		this.executor = executor;
+	}
+	
+	
+	public AlgorithmFactory.SearchStrategy getSearchStrategy() {
+		return strategy;
+	}
+	
+	
+	public void setSearchStrategy(AlgorithmFactory.SearchStrategy strategy) {
+		this.strategy = strategy;
+	}
+	
+	
+	/**
+	 * Packs every job and waits for all of them.
+	 * 
+	 * @param jobs
+	 * @param mandatoryfit
+	 * @return the layouts, in the order of the jobs, and how fast they 
+	 *         were found.
+	 * @throws IllegalStateException if the waiting thread is interrupted.
+	 */
+	public BatchResult<T> pack(List<? extends List<Bin<T>>> jobs, final boolean mandatoryfit) {
+		final long[] latencies = new long[jobs.size()];
+		ArrayList<Callable<ArrayList<Bin<T>>>> tasks = new ArrayList<Callable<ArrayList<Bin<T>>>>(jobs.size());
+		for (int i = 0; i < jobs.size(); i++) {
+			final int job = i;
+			final ArrayList<Bin<T>> bins = new ArrayList<Bin<T>>(jobs.get(i));
+			tasks.add(new Callable<ArrayList<Bin<T>>>() {
+				@Override
+				public ArrayList<Bin<T>> call() {
+					long start = System.nanoTime();
+					AlgorithmFactory<T> f = new AlgorithmFactory<T>();
+					f.setSearchStrategy(strategy);
+					ArrayList<Bin<T>> result = f.bestGuillotinePack(bins, mandatoryfit);
+					latencies[job] = System.nanoTime() - start;
+					return result;
+				}
+			});
+		}
+		
+		long start = System.nanoTime();
+		List<Future<ArrayList<Bin<T>>>> futures;
+		try {
+			futures = executor.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while packing a batch", e);
+		}
+		
+		ArrayList<ArrayList<Bin<T>>> layouts = new ArrayList<ArrayList<Bin<T>>>(futures.size());
+		for (Future<ArrayList<Bin<T>>> f : futures) {
+			try {
+				layouts.add(f.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while packing a batch", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		return new BatchResult<T>(layouts, latencies, System.nanoTime() - start);
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.fox.brian.binpack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The layouts of a batch of jobs, with the throughput of the batch and 
+ * the latency of its jobs.
+ */
+public class BatchResult<T> {
+	
+	private final ArrayList<ArrayList<Bin<T>>> layouts;
+	private final long[] latencies;
+	private final long[] sorted;
+	private final long elapsed;
+	
+	public BatchResult(ArrayList<ArrayList<Bin<T>>> layouts, long[] latencies, long elapsed) {
+		this.layouts = layouts;
+		this.latencies = latencies;
+		this.sorted = latencies.clone();
+		Arrays.sort(this.sorted);
+		this.elapsed = elapsed;
+	}
+	
+	/**
+	 * @return the layout of each job, in the order of the jobs.
+	 */
+	public ArrayList<ArrayList<Bin<T>>> getLayouts() {
+		return layouts;
+	}
+	
+	public ArrayList<Bin<T>> getLayout(int job) {
+		return layouts.get(job);
+	}
+	
+	public int size() {
+		return layouts.size();
+	}
+	
+	/**
+	 * @return the wall clock time of the whole batch, in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return elapsed;
+	}
+	
+	/**
+	 * @return the number of jobs packed per second of wall clock time.
+	 */
+	public double getJobsPerSecond() {
+		if (elapsed == 0)
+			return 0;
+		return layouts.size() / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+	}
+	
+	/**
+	 * @return the time one job took to search, in nanoseconds.
+	 */
+	public long getLatencyNanos(int job) {
+		return latencies[job];
+	}
+	
+	/**
+	 * @param percentile between 0 and 100.
+	 * @return the job latency below which the given percentage of the jobs 
+	 *         fall, in nanoseconds, by the nearest rank.
+	 */
+	public long getLatencyPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("A percentile lies between 0 and 100, not " + percentile);
+		if (sorted.length == 0)
+			return 0;
+		int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+		return sorted[Math.max(rank, 1) - 1];
+	}
+
+}
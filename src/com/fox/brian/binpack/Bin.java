@@ -7,6 +7,8 @@ public class Bin<T> {
 	private float y;
 	private float width;
 	private float height;
+	private int page;
+	private boolean rotated;
 	private String summary;
 	
 	public Bin(T object, float width, float height, String summary) {
@@ -28,9 +30,26 @@ public class Bin<T> {
 		this.width = src.width;
 		this.x = newx;
 		this.y = newy;
+		this.page = src.page;
+		this.rotated = src.rotated;
 		this.summary = src.summary;
 	}
 
+	/**
+	 * Places a copy of the given bin on a page of a multi-page layout, 
+	 * possibly turned by 90 degrees.  A turned copy has its width and 
+	 * height swapped.
+	 */
+	public Bin(Bin<T> src, float newx, float newy, int page, boolean rotated) {
+		this(src, newx, newy);
+		this.page = page;
+		if (rotated) {
+			this.width = src.height;
+			this.height = src.width;
+			this.rotated = !src.rotated;
+		}
+	}
+
 	public Bin(Bin<T> src) {
 		if (Float.isNaN(width) || Float.isNaN(height))
 			System.err.println("Bad constructor call on Bin (3)");
@@ -39,6 +58,8 @@ public class Bin<T> {
 		this.width = src.width;
 		this.x = src.x;
 		this.y = src.y;
+		this.page = src.page;
+		this.rotated = src.rotated;
 		this.summary = src.summary;
 	}
 
@@ -58,6 +79,22 @@ public class Bin<T> {
 		return height;
 	}
 
+	/**
+	 * @return the page the bin was placed on in a multi-page layout, 
+	 *         counting from 0.  Single container layouts use page 0.
+	 */
+	public int getPage() {
+		return page;
+	}
+
+	/**
+	 * @return true if the bin was turned by 90 degrees to place it, so 
+	 *         that its width and height are those of the turned object.
+	 */
+	public boolean isRotated() {
+		return rotated;
+	}
+
 	public T getObject() {
 		return object;
 	}
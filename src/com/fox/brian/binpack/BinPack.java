@@ -1,14 +1,30 @@
 package com.fox.brian.binpack;
 
 import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import com.fox.brian.binpack.algorithms.AlgorithmFactory;
+import com.fox.brian.binpack.algorithms.ContainerType;
 import com.fox.brian.binpack.algorithms.GuillotineContainer;
+import com.fox.brian.binpack.algorithms.ItemOrder;
+import com.fox.brian.binpack.algorithms.PagePacker;
+import com.fox.brian.binpack.util.CancellationToken;
+import com.fox.brian.binpack.util.PackExecutors;
 
 public class BinPack<T> {
 
 	ArrayList<Bin<T>> objects;
 	GuillotineContainer<T> binpack;
+	AlgorithmFactory.SearchStrategy strategy = AlgorithmFactory.SearchStrategy.ADAPTIVE;
+	ItemOrder[] orders;
+	long sizesEvaluated;
+	long packingsEvaluated;
+	PackCache cache;
 
 	public BinPack() {
 		this.objects = new ArrayList<Bin<T>>();
@@ -30,9 +46,296 @@ public class BinPack<T> {
 	}
 	
 	
+	/**
+	 * Packs the objects into the best layout the search finds.
+	 * 
+	 * @param mandatoryfit
+	 * @return the packed objects
+	 * @throws CancellationException if the thread was interrupted before 
+	 *         the search finished.  The interrupt flag stays set.
+	 */
 	public ArrayList<Bin<T>> pack(boolean mandatoryfit) {
+		return pack(mandatoryfit, null);
+	}
+	
+	
+	/**
+	 * Packs the objects like {@link #pack(boolean)}, but spreads the 
+	 * candidate bin sizes over the given executor.  Returns the same 
+	 * layout as the sequential search.
+	 * 
+	 * @param mandatoryfit
+	 * @param executor
+	 * @return the packed objects
+	 * @throws CancellationException if the thread was interrupted before 
+	 *         the search finished.
+	 */
+	public ArrayList<Bin<T>> pack(boolean mandatoryfit, ExecutorService executor) {
+		return pack(mandatoryfit, executor, AlgorithmFactory.Parallelism.SIZES);
+	}
+	
+	
+	/**
+	 * Packs the objects like {@link #pack(boolean)}, spreading the given 
+	 * part of the search over the executor.
+	 * 
+	 * @param mandatoryfit
+	 * @param executor
+	 * @param parallelism
+	 * @return the packed objects
+	 * @throws CancellationException if the thread was interrupted before 
+	 *         the search finished.
+	 */
+	public ArrayList<Bin<T>> pack(boolean mandatoryfit, ExecutorService executor, AlgorithmFactory.Parallelism parallelism) {
+		AlgorithmFactory<T> f = new AlgorithmFactory<T>(executor, parallelism);
+		return searchToEnd(f, mandatoryfit);
+	}
+	
+	
+	/**
+	 * Packs the objects like {@link #pack(boolean)}, but gives up once the 
+	 * time budget runs out or the token is cancelled.  The search then 
+	 * returns the best layout it completed so far, if any.
+	 * 
+	 * @param mandatoryfit
+	 * @param timeout the time budget.
+	 * @param unit the unit of the time budget.
+	 * @param token cancels the search from another thread.  May be null.
+	 * @return the layout, and whether the search ran to the end.
+	 */
+	public PackResult<T> pack(boolean mandatoryfit, long timeout, TimeUnit unit, CancellationToken token) {
 		AlgorithmFactory<T> f = new AlgorithmFactory<T>();
-		return f.bestGuillotinePack(objects, mandatoryfit);
+		f.setDeadline(System.nanoTime() + unit.toNanos(timeout));
+		f.setCancellationToken(token);
+		ArrayList<Bin<T>> result = search(f, mandatoryfit);
+		return new PackResult<T>(result, f.isSearchComplete());
+	}
+	
+	
+	/**
+	 * Packs the objects like {@link #pack(boolean)} without blocking the 
+	 * caller.  The request waits on a virtual thread where the runtime has 
+	 * them, while the search runs on the bounded 
+	 * {@link PackExecutors#compute()} pool.
+	 * 
+	 * @param mandatoryfit
+	 * @return the packed objects, once the search is done.
+	 */
+	public CompletableFuture<ArrayList<Bin<T>>> packAsync(boolean mandatoryfit) {
+		return packAsync(mandatoryfit, PackExecutors.requests(), PackExecutors.compute());
+	}
+	
+	
+	/**
+	 * Packs the objects like {@link #pack(boolean)} without blocking the 
+	 * caller.  Cancelling the future stops the search.  The objects must 
+	 * not change until the future is done.
+	 * 
+	 * @param mandatoryfit
+	 * @param executor runs the request, which mostly waits for the search.
+	 * @param compute runs the search.  Should be bounded by the number of 
+	 *        cores, however many requests are waiting.
+	 * @return the packed objects, once the search is done.
+	 */
+	public CompletableFuture<ArrayList<Bin<T>>> packAsync(final boolean mandatoryfit, Executor executor, final ExecutorService compute) {
+		final CancellationToken token = new CancellationToken();
+		final CompletableFuture<ArrayList<Bin<T>>> future = new CompletableFuture<ArrayList<Bin<T>>>() {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				token.cancel();
+				return super.cancel(mayInterruptIfRunning);
+			}
+		};
+		
+		Runnable request = new Runnable() {
+			@Override
+			public void run() {
+				if (future.isDone())
+					return;
+				try {
+					AlgorithmFactory<T> f = new AlgorithmFactory<T>(compute, AlgorithmFactory.Parallelism.SIZES);
+					f.setCancellationToken(token);
+					future.complete(searchToEnd(f, mandatoryfit));
+				} catch (Throwable t) {
+					future.completeExceptionally(t);
+				}
+			}
+		};
+		try {
+			executor.execute(request);
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+	
+	
+	/**
+	 * Runs the search like {@link #search(AlgorithmFactory, boolean)}, for 
+	 * the callers that have no way to report a search that stopped early.
+	 * 
+	 * @throws CancellationException if the search was stopped before it 
+	 *         finished.  An interrupt flag that stopped it stays set.
+	 */
+	private ArrayList<Bin<T>> searchToEnd(AlgorithmFactory<T> f, boolean mandatoryfit) {
+		ArrayList<Bin<T>> result = search(f, mandatoryfit);
+		if (!f.isSearchComplete())
+			throw new CancellationException("The search was stopped before it finished");
+		return result;
+	}
+	
+	
+	/**
+	 * Runs the search on the given factory, or lays out a cached layout of 
+	 * the same sizes if there is one.  Only complete layouts of every 
+	 * object are cached.
+	 */
+	private ArrayList<Bin<T>> search(AlgorithmFactory<T> f, boolean mandatoryfit) {
+		f.setSearchStrategy(strategy);
+		if (orders != null)
+			f.setItemOrders(orders);
+		
+		PackCache.Key key = null;
+		if (cache != null && objects.size() > 0) {
+			key = cache.key(objects, mandatoryfit, strategy, f.getItemOrders());
+			float[] placements = cache.get(key);
+			if (placements != null) {
+				sizesEvaluated = 0;
+				packingsEvaluated = 0;
+				ArrayList<Bin<T>> result = new ArrayList<Bin<T>>(objects.size());
+				for (int i = 0; i < objects.size(); i++)
+					result.add(new Bin<T>(objects.get(i), placements[2*i], placements[2*i+1]));
+				return result;
+			}
+		}
+		
+		ArrayList<Bin<T>> result = f.bestGuillotinePack(objects, mandatoryfit);
+		sizesEvaluated = f.getSizesEvaluated();
+		packingsEvaluated = f.getPackingsEvaluated();
+		
+		if (key != null && result != null && f.isSearchComplete() && result.size() == objects.size()) {
+			float[] placements = new float[2 * result.size()];
+			for (int i = 0; i < result.size(); i++) {
+				placements[2*i] = result.get(i).getX();
+				placements[2*i+1] = result.get(i).getY();
+			}
+			cache.put(key, placements);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Packs the objects on the common ForkJoinPool.
+	 * 
+	 * @param mandatoryfit
+	 * @return the packed objects
+	 * @throws CancellationException if the thread was interrupted before 
+	 *         the search finished.
+	 */
+	public ArrayList<Bin<T>> packParallel(boolean mandatoryfit) {
+		return pack(mandatoryfit, ForkJoinPool.commonPool());
+	}
+	
+	
+	/**
+	 * Packs the objects onto as few pages of the given size as possible, 
+	 * with guillotine cuts on each page.  Each returned bin knows its 
+	 * page, see {@link Bin#getPage()}.
+	 * 
+	 * @param pageWidth
+	 * @param pageHeight
+	 * @return the packed objects, in the order they were added.
+	 * @throws IllegalArgumentException if an object is larger than a page.
+	 */
+	public ArrayList<Bin<T>> packPages(float pageWidth, float pageHeight) {
+		return packPages(pageWidth, pageHeight, ContainerType.GUILLOTINE, null);
+	}
+	
+	
+	/**
+	 * Packs the objects onto as few pages of the given size as possible, 
+	 * refining the pages in parallel on the executor.
+	 * 
+	 * @param pageWidth
+	 * @param pageHeight
+	 * @param type the container used for each page.  The shelf types 
+	 *        skip the refinement, and trade density for speed.
+	 * @param executor may be null to work on the calling thread.
+	 * @return the packed objects, in the order they were added.
+	 * @throws IllegalArgumentException if an object is larger than a page.
+	 */
+	public ArrayList<Bin<T>> packPages(float pageWidth, float pageHeight, ContainerType type, ExecutorService executor) {
+		PagePacker<T> packer = new PagePacker<T>(pageWidth, pageHeight, type, executor);
+		return packer.pack(objects);
+	}
+	
+	
+	public PackCache getCache() {
+		return cache;
+	}
+	
+	
+	/**
+	 * Puts a layout cache in front of the search.  A pack whose sizes, 
+	 * order and options match an earlier one reuses its layout.
+	 * 
+	 * @param cache the cache, or null to always search.
+	 */
+	public void setCache(PackCache cache) {
+		this.cache = cache;
+	}
+	
+	
+	public AlgorithmFactory.SearchStrategy getSearchStrategy() {
+		return strategy;
+	}
+	
+	
+	/**
+	 * Selects how the bin sizes are searched.  Defaults to 
+	 * {@link AlgorithmFactory.SearchStrategy#ADAPTIVE}.
+	 * 
+	 * @param strategy
+	 */
+	public void setSearchStrategy(AlgorithmFactory.SearchStrategy strategy) {
+		this.strategy = strategy;
+	}
+	
+	
+	/**
+	 * @return the item orders tried, or null for the factory's default.
+	 */
+	public ItemOrder[] getItemOrders() {
+		return orders == null ? null : orders.clone();
+	}
+	
+	
+	/**
+	 * Selects the orders the objects are packed in.  The objects are 
+	 * returned in the order they were added whichever order packs best.
+	 * 
+	 * @param orders the orders, or null for the factory's default.
+	 * @see AlgorithmFactory#setItemOrders(ItemOrder...)
+	 */
+	public void setItemOrders(ItemOrder... orders) {
+		this.orders = orders == null ? null : orders.clone();
+	}
+	
+	
+	/**
+	 * @return the number of bin sizes the last pack tried.
+	 */
+	public long getSizesEvaluated() {
+		return sizesEvaluated;
+	}
+	
+	
+	/**
+	 * @return the number of candidate packings the last pack started.
+	 */
+	public long getPackingsEvaluated() {
+		return packingsEvaluated;
 	}
 	
 	
@@ -0,0 +1,155 @@
+package com.fox.brian.binpack;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fox.brian.binpack.algorithms.AlgorithmFactory;
+import com.fox.brian.binpack.algorithms.ItemOrder;
+
+/**
+ * A bounded, thread-safe cache of finished layouts, shared by any number 
+ * of BinPack instances.  A layout is keyed by the ordered list of bin 
+ * sizes and the search options, and stored as bare coordinates, so that 
+ * it can be laid onto a different set of objects of the same sizes.  The 
+ * least recently used layout is evicted once the cache is full.
+ */
+public class PackCache {
+
+	/**
+	 * The fingerprint of a packing job.
+	 */
+	public static final class Key {
+		
+		private final int[] sizes;
+		private final boolean mandatoryfit;
+		private final AlgorithmFactory.SearchStrategy strategy;
+		private final ItemOrder[] orders;
+		private final int hash;
+		
+		Key(List<? extends Bin<?>> bins, boolean mandatoryfit, AlgorithmFactory.SearchStrategy strategy, ItemOrder[] orders) {
+			sizes = new int[bins.size() * 2];
+			for (int i = 0; i < bins.size(); i++) {
+				// Adding zero folds -0.0 into 0.0.
+				sizes[2*i] = Float.floatToIntBits(bins.get(i).getWidth() + 0.0F);
+				sizes[2*i+1] = Float.floatToIntBits(bins.get(i).getHeight() + 0.0F);
+			}
+			this.mandatoryfit = mandatoryfit;
+			this.strategy = strategy;
+			this.orders = orders.clone();
+			this.hash = 31 * (31 * (31 * Arrays.hashCode(sizes) + (mandatoryfit ? 1 : 0)) + strategy.hashCode()) + Arrays.hashCode(this.orders);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return hash == k.hash 
+					&& mandatoryfit == k.mandatoryfit 
+					&& strategy == k.strategy 
+					&& Arrays.equals(orders, k.orders) 
+					&& Arrays.equals(sizes, k.sizes);
+		}
+	}
+	
+	
+	private final int maxEntries;
+	private final LinkedHashMap<Key, float[]> entries;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	
+	
+	/**
+	 * @param maxEntries the number of layouts kept before the least 
+	 *        recently used one is evicted.
+	 */
+	public PackCache(final int maxEntries) {
+		if (maxEntries < 1)
+			throw new IllegalArgumentException("A cache needs room for at least one layout");
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<Key, float[]>(16, 0.75F, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, float[]> eldest) {
+				if (size() <= PackCache.this.maxEntries)
+					return false;
+				evictions++;
+				return true;
+			}
+		};
+	}
+	
+	
+	/**
+	 * @return the fingerprint of packing the given bins in their order.
+	 */
+	public Key key(List<? extends Bin<?>> bins, boolean mandatoryfit, AlgorithmFactory.SearchStrategy strategy, ItemOrder... orders) {
+		return new Key(bins, mandatoryfit, strategy, orders);
+	}
+	
+	
+	/**
+	 * Looks up the coordinates of a layout and counts a hit or a miss.
+	 * 
+	 * @param key
+	 * @return the x and y of every bin in input order, interleaved, or null.
+	 */
+	public synchronized float[] get(Key key) {
+		float[] placements = entries.get(key);
+		if (placements == null)
+			misses++;
+		else
+			hits++;
+		return placements;
+	}
+	
+	
+	/**
+	 * Stores the coordinates of a layout.
+	 * 
+	 * @param key
+	 * @param placements the x and y of every bin in input order, interleaved.
+	 */
+	public synchronized void put(Key key, float[] placements) {
+		entries.put(key, placements);
+	}
+	
+	
+	public synchronized void clear() {
+		entries.clear();
+	}
+	
+	
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+	
+	
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.fox.brian.binpack;
+
+import java.util.ArrayList;
+
+/**
+ * The outcome of a pack that may have been cut short by a deadline or a 
+ * cancellation.
+ */
+public class PackResult<T> {
+
+	private final ArrayList<Bin<T>> bins;
+	private final boolean complete;
+	
+	public PackResult(ArrayList<Bin<T>> bins, boolean complete) {
+		this.bins = bins;
+		this.complete = complete;
+	}
+	
+	/**
+	 * @return the best layout found, or null if the search stopped before 
+	 *         it completed a single packing.
+	 */
+	public ArrayList<Bin<T>> getBins() {
+		return bins;
+	}
+	
+	/**
+	 * @return true if the search ran to the end, false if it was stopped 
+	 *         and the layout is only the best found so far.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+	
+	/**
+	 * @return true if there is a layout.
+	 */
+	public boolean hasLayout() {
+		return bins != null;
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.fox.brian.binpack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+import com.fox.brian.binpack.algorithms.AlgorithmFactory;
+import com.fox.brian.binpack.algorithms.Container;
+import com.fox.brian.binpack.algorithms.ContainerType;
+import com.fox.brian.binpack.algorithms.GuillotineContainer;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer;
+import com.fox.brian.binpack.util.Rect;
+
+/**
+ * A layout that grows a few objects at a time.  The session keeps the 
+ * container of its last full search and places each new object into the 
+ * free space left in it, which costs one pass over the free rectangles. 
+ * The whole layout is only searched again when an object does not fit, 
+ * or when the density drops too far below what the last full search 
+ * reached.
+ */
+public class PackSession<T> {
+	
+	private final ContainerType type;
+	private final ArrayList<Bin<T>> objects = new ArrayList<Bin<T>>();
+	private float threshold = 0.9F;
+	
+	private Container<T> container;
+	private float searchedScore;
+	private float[] x = new float[16];
+	private float[] y = new float[16];
+	private boolean[] rotated = new boolean[16];
+	private int searches = 0;
+	
+	
+	/**
+	 * @param type the container the layout is kept in.
+	 * @throws IllegalArgumentException if the layout cannot be searched 
+	 *         in that container, as with the shelf types.
+	 */
+	public PackSession(ContainerType type) {
+		if (type != ContainerType.GUILLOTINE && type != ContainerType.MAXRECTS)
+			throw new IllegalArgumentException("A session keeps its layout in GUILLOTINE or MAXRECTS, not " + type);
+		this.type = type;
+	}
+	
+	
+	public float getDensityThreshold() {
+		return threshold;
+	}
+	
+	
+	/**
+	 * Sets how far the density may fall before the layout is searched 
+	 * again, as a fraction of the density the last full search reached. 
+	 * 0 never searches again for density, 1 searches again whenever an 
+	 * addition makes the layout any less dense.  Defaults to 0.9.
+	 * 
+	 * @param threshold
+	 */
+	public void setDensityThreshold(float threshold) {
+		if (!(threshold >= 0 && threshold <= 1))
+			throw new IllegalArgumentException("The density threshold lies between 0 and 1, not " + threshold);
+		this.threshold = threshold;
+	}
+	
+	
+	/**
+	 * Adds an object to the layout.
+	 * 
+	 * @param bin
+	 * @return true if the object went into free space and the others kept 
+	 *         their places, false if the whole layout was searched again.
+	 * @throws CancellationException if the object needed a new search and 
+	 *         the thread was interrupted; the object is then left out and 
+	 *         the others keep their places.
+	 */
+	public boolean add(Bin<T> bin) {
+		int i = objects.size();
+		objects.add(bin);
+		if (i == x.length) {
+			x = Arrays.copyOf(x, 2 * i);
+			y = Arrays.copyOf(y, 2 * i);
+			rotated = Arrays.copyOf(rotated, 2 * i);
+		}
+		
+		Rect r = null;
+		if (container != null) {
+			if (type == ContainerType.GUILLOTINE)
+				r = ((GuillotineContainer<T>) container).insert(bin, true,
+						GuillotineContainer.FreeRectChoiceHeuristic.RectBestAreaFit,
+						GuillotineContainer.GuillotineSplitHeuristic.SplitMinimizeArea);
+			else
+				r = ((MaxRectsContainer<T>) container).insert(bin,
+						MaxRectsContainer.FreeRectChoiceHeuristic.RectBestShortSideFit);
+			if (r.height() != 0 && container.score() >= threshold * searchedScore) {
+				x[i] = r.x();
+				y[i] = r.y();
+				rotated[i] = r.width() != bin.getWidth();
+				return true;
+			}
+		}
+		
+		try {
+			search();
+		} catch (CancellationException e) {
+			if (r != null && r.height() != 0) {
+				// It fits, only less densely than wanted: keep it there.
+				x[i] = r.x();
+				y[i] = r.y();
+				rotated[i] = r.width() != bin.getWidth();
+				return true;
+			}
+			// The overflowed container cannot take it, so the next add 
+			// searches again.
+			objects.remove(i);
+			container = null;
+			throw e;
+		}
+		return false;
+	}
+	
+	
+	public void add(T object, float width, float height, String summary) {
+		add(new Bin<T>(object, width, height, summary));
+	}
+	
+	
+	/**
+	 * Searches the whole layout again, and keeps the container it found.
+	 * 
+	 * @throws CancellationException if the thread was interrupted before 
+	 *         the search finished; the layout is then left as it was.
+	 */
+	public void search() {
+		searches++;
+		AlgorithmFactory<T> f = new AlgorithmFactory<T>();
+		GuillotineContainer<T> g = f.bestGuillotineContainer(objects, false);
+		if (g == null || !f.isSearchComplete())
+			throw new CancellationException("The search was stopped before it finished");
+		Container<T> found = g;
+		
+		if (type == ContainerType.MAXRECTS) {
+			// Search MaxRects at the size the guillotine search chose, which
+			// nearly always holds everything, and grow it until it does.
+			float width = g.getBinWidth();
+			float height = g.getBinHeight();
+			MaxRectsContainer<T> m = f.bestScoreMaxRectsFixedDimensions(objects, width, height);
+			while (m == null && f.isSearchComplete()) {
+				width *= 1.1F;
+				height *= 1.1F;
+				m = f.bestScoreMaxRectsFixedDimensions(objects, width, height);
+			}
+			if (m == null || !f.isSearchComplete())
+				throw new CancellationException("The search was stopped before it finished");
+			found = m;
+		}
+		
+		container = found;
+		
+		ArrayList<Bin<T>> placed = container.getBins();
+		for (int k = 0; k < placed.size(); k++) {
+			int i = container.getInputIndex(k);
+			x[i] = placed.get(k).getX();
+			y[i] = placed.get(k).getY();
+			rotated[i] = placed.get(k).isRotated();
+		}
+		// Later inserts come straight from the caller, not from a sorted list.
+		container.setInputOrder(null);
+		searchedScore = container.score();
+	}
+	
+	
+	/**
+	 * @return a placed copy of every object, in the order they were added.
+	 */
+	public ArrayList<Bin<T>> getLayout() {
+		ArrayList<Bin<T>> layout = new ArrayList<Bin<T>>(objects.size());
+		for (int i = 0; i < objects.size(); i++)
+			layout.add(new Bin<T>(objects.get(i), x[i], y[i], 0, rotated[i]));
+		return layout;
+	}
+	
+	
+	/**
+	 * @return the used area over the bounding box of the layout.
+	 */
+	public float getDensity() {
+		return container == null ? 0 : container.score();
+	}
+	
+	
+	/**
+	 * @return the number of full searches run so far.
+	 */
+	public int getSearchCount() {
+		return searches;
+	}
+	
+	
+	public int size() {
+		return objects.size();
+	}
+
+}
@@ -1,8 +1,19 @@
 package com.fox.brian.binpack.algorithms;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.fox.brian.binpack.util.CancellationToken;
 import com.fox.brian.binpack.util.Helper;
 import com.fox.brian.binpack.Bin;
 import com.fox.brian.binpack.algorithms.GuillotineContainer.FreeRectChoiceHeuristic;
@@ -11,6 +22,344 @@ import com.fox.brian.binpack.util.Rect;
 
 public class AlgorithmFactory<T> {
 
+	/**
+	 * Specifies which part of the search is spread over the executor.  Only 
+	 * one level runs in parallel; the other runs on the task's own thread.
+	 */
+	public enum Parallelism {
+		/** Each candidate bin size is a task.  Best for the sliding search. */
+		SIZES,
+		/** Each heuristic combination of a bin size is a task.  Best for 
+		 * callers that pack one fixed size at a time. */
+		HEURISTICS
+	}
+	
+	
+	/**
+	 * Specifies how the candidate bin sizes are chosen.
+	 */
+	public enum SearchStrategy {
+		/** Tries every size of a fixed 0.05 step sweep and a 1.5x grid. */
+		SLIDING,
+		/** Skips sizes the bins cannot fit into, brackets the best size 
+		 * with a coarse sweep and then refines around it. */
+		ADAPTIVE
+	}
+	
+	
+	/**
+	 * Runs the parallel part of the search.  When null, the search runs on 
+	 * the calling thread.
+	 */
+	private final ExecutorService executor;
+	
+	private final Parallelism parallelism;
+	
+	private SearchStrategy strategy = SearchStrategy.ADAPTIVE;
+	
+	/** Number of bin sizes the search has tried. */
+	private final AtomicLong sizesEvaluated = new AtomicLong();
+	
+	/** Number of packings the search has started, abandoned or not. */
+	private final AtomicLong packingsEvaluated = new AtomicLong();
+	
+	/** Stops the search when cancelled.  May be null. */
+	private CancellationToken token;
+	
+	/** System.nanoTime() after which the search stops, if hasDeadline. */
+	private long deadline;
+	private boolean hasDeadline = false;
+	
+	/** Set once the search has been cut short. */
+	private volatile boolean stopped = false;
+	
+	/** The item orders tried for every bin size, in this order. */
+	private ItemOrder[] orders = new ItemOrder[] { 
+			ItemOrder.HEIGHT_DESC, 
+			ItemOrder.MAX_SIDE_DESC, 
+			ItemOrder.PERIMETER_DESC, 
+			ItemOrder.AREA_DESC, 
+			ItemOrder.ORIGINAL 
+	};
+	
+	/**
+	 * The containers a thread packs its candidates into.  Most candidates 
+	 * are abandoned or lose, and their container is reset and packed 
+	 * again by the next one, on this factory or any other, so that a 
+	 * search in the steady state allocates no containers and the arrays 
+	 * inside them stop growing.  A container that is returned to a caller 
+	 * leaves the workspace for good.
+	 */
+	private static final class Workspace {
+		GuillotineContainer<?> guillotine;
+		MaxRectsContainer<?> maxRects;
+	}
+	
+	private static final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>() {
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace();
+		}
+	};
+	
+	
+	/**
+	 * @return an empty container of the given size from this thread's 
+	 *         workspace, or a new one if the workspace has none.
+	 */
+	@SuppressWarnings("unchecked")
+	private GuillotineContainer<T> takeGuillotine(float width, float height) {
+		Workspace w = workspaces.get();
+		GuillotineContainer<T> c = (GuillotineContainer<T>) w.guillotine;
+		if (c == null)
+			return new GuillotineContainer<T>(width, height, 0, 0);
+		w.guillotine = null;
+		c.reset(width, height);
+		return c;
+	}
+	
+	
+	/**
+	 * @return an empty container of the given size from this thread's 
+	 *         workspace, or a new one if the workspace has none.
+	 */
+	@SuppressWarnings("unchecked")
+	private MaxRectsContainer<T> takeMaxRects(float width, float height) {
+		Workspace w = workspaces.get();
+		MaxRectsContainer<T> c = (MaxRectsContainer<T>) w.maxRects;
+		if (c == null)
+			return new MaxRectsContainer<T>(width, height);
+		w.maxRects = null;
+		c.reset(width, height);
+		return c;
+	}
+	
+	
+	/**
+	 * Hands a container nobody else holds back to this thread's workspace.  
+	 * It is emptied right away, so that it does not keep the caller's bins 
+	 * alive.
+	 * 
+	 * @param c the container, or null.
+	 */
+	private void recycle(Container<T> c) {
+		if (c == null)
+			return;
+		c.reset(0, 0);
+		if (c instanceof GuillotineContainer)
+			workspaces.get().guillotine = (GuillotineContainer<T>) c;
+		else if (c instanceof MaxRectsContainer)
+			workspaces.get().maxRects = (MaxRectsContainer<T>) c;
+	}
+	
+	
+	/** The bins of the current search and their distinct item orders. */
+	private ArrayList<Bin<T>> orderedInput;
+	private ArrayList<OrderedBins> orderings;
+	
+	
+	/**
+	 * The bins of a search, sorted once into one of the item orders and 
+	 * then shared read-only by all candidate packings of that order.
+	 */
+	private class OrderedBins {
+		
+		final ItemOrder order;
+		final ArrayList<Bin<T>> bins;
+		
+		/** The index in the caller's list of each bin. */
+		final int[] inputIndex;
+		
+		OrderedBins(ItemOrder order, ArrayList<Bin<T>> input) {
+			this.order = order;
+			this.inputIndex = order.sort(input);
+			this.bins = new ArrayList<Bin<T>>(input.size());
+			for (int i : inputIndex)
+				bins.add(input.get(i));
+		}
+		
+		/**
+		 * @return true if the bins come in the same sizes in the same order, 
+		 *         so that both orders pack identically.
+		 */
+		boolean sameSizes(OrderedBins other) {
+			for (int i = 0; i < bins.size(); i++) {
+				if (bins.get(i).getWidth() != other.bins.get(i).getWidth() 
+						|| bins.get(i).getHeight() != other.bins.get(i).getHeight())
+					return false;
+			}
+			return true;
+		}
+		
+	}
+	
+	
+	/**
+	 * Sorts the bins into each of the selected item orders, skipping 
+	 * orders that repeat an earlier sequence of sizes.  The sorting is done 
+	 * once per search and reused by every call within it.
+	 * 
+	 * @param bins
+	 * @return the distinct orders, in the order they were selected.
+	 */
+	private ArrayList<OrderedBins> orderings(ArrayList<Bin<T>> bins) {
+		if (orderedInput == bins)
+			return orderings;
+		
+		ArrayList<OrderedBins> distinct = new ArrayList<OrderedBins>();
+		for (ItemOrder order : orders) {
+			OrderedBins next = new OrderedBins(order, bins);
+			boolean duplicate = false;
+			for (OrderedBins o : distinct)
+				duplicate |= next.sameSizes(o);
+			if (!duplicate)
+				distinct.add(next);
+		}
+		orderings = distinct;
+		orderedInput = bins;
+		return distinct;
+	}
+	
+	
+	/**
+	 * Creates a factory that searches on the calling thread.
+	 */
+	public AlgorithmFactory() {
+		this(null);
+	}
+	
+	
+	/**
+	 * Creates a factory that spreads the candidate bin sizes over the given 
+	 * executor, e.g. a ForkJoinPool.  The result is the same container the 
+	 * sequential search would return.
+	 * 
+	 * @param executor the executor to search on, or null to search on the 
+	 *        calling thread.
+	 */
+	public AlgorithmFactory(ExecutorService executor) {
+		this(executor, Parallelism.SIZES);
+	}
+	
+	
+	/**
+	 * Creates a factory that spreads the given part of the search over the 
+	 * executor.  The result is the same container the sequential search 
+	 * would return.
+	 * 
+	 * @param executor the executor to search on, or null to search on the 
+	 *        calling thread.
+	 * @param parallelism
+	 */
+	public AlgorithmFactory(ExecutorService executor, Parallelism parallelism) {
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+	
+	
+	/**
+	 * @return a factory that searches on the common ForkJoinPool.
+	 */
+	public static <T> AlgorithmFactory<T> parallel() {
+		return new AlgorithmFactory<T>(ForkJoinPool.commonPool());
+	}
+	
+	
+	public SearchStrategy getSearchStrategy() {
+		return strategy;
+	}
+	
+	
+	public void setSearchStrategy(SearchStrategy strategy) {
+		this.strategy = strategy;
+	}
+	
+	
+	public ItemOrder[] getItemOrders() {
+		return orders.clone();
+	}
+	
+	
+	/**
+	 * Selects the item orders tried with every bin size.  Each order is 
+	 * one more dimension of the heuristic portfolio, and is pruned against 
+	 * the best score like the others, so the most promising order should 
+	 * come first.  Orders that put the bins in the same sequence of sizes 
+	 * as an earlier one are skipped.
+	 * 
+	 * @param orders
+	 */
+	public void setItemOrders(ItemOrder... orders) {
+		if (orders.length == 0)
+			throw new IllegalArgumentException("At least one item order is needed");
+		this.orders = orders.clone();
+		this.orderedInput = null;
+		this.orderings = null;
+	}
+	
+	
+	/**
+	 * Stops the search once the given token is cancelled.
+	 * 
+	 * @param token the token, or null for none.
+	 */
+	public void setCancellationToken(CancellationToken token) {
+		this.token = token;
+	}
+	
+	
+	/**
+	 * Stops the search once System.nanoTime() passes the given value.
+	 * 
+	 * @param deadline
+	 */
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+		this.hasDeadline = true;
+	}
+	
+	
+	/**
+	 * @return false if the last search was stopped by the deadline, the 
+	 *         cancellation token or an interrupt before it finished.
+	 */
+	public boolean isSearchComplete() {
+		return !stopped;
+	}
+	
+	
+	/**
+	 * Checks whether the search has to stop.  Once it returns true it 
+	 * keeps returning true, so that every loop winds down.
+	 */
+	private boolean shouldStop() {
+		if (stopped)
+			return true;
+		if ((token != null && token.isCancelled()) 
+				|| (hasDeadline && System.nanoTime() - deadline >= 0)
+				|| Thread.currentThread().isInterrupted())
+			stopped = true;
+		return stopped;
+	}
+	
+	
+	/**
+	 * @return the number of bin sizes tried by this factory so far.
+	 */
+	public long getSizesEvaluated() {
+		return sizesEvaluated.get();
+	}
+	
+	
+	/**
+	 * @return the number of candidate packings started by this factory so 
+	 *         far, including those abandoned against the score bound.
+	 */
+	public long getPackingsEvaluated() {
+		return packingsEvaluated.get();
+	}
+	
+
 	public class AlgorithmParameters {
 		
 		float height;
@@ -35,6 +384,7 @@ public class AlgorithmFactory<T> {
 		GuillotineContainer.GuillotineSplitHeuristic splitChoice;
 		boolean merge;
 		public boolean mandatoryfit;
+		OrderedBins ordered;
 
 		public GuillotineParameters(
 				float width, 
@@ -47,6 +397,7 @@ public class AlgorithmFactory<T> {
 			super(width, height, mandatoryfit);
 			this.rectChoice = h;
 			this.splitChoice = s;
+			this.merge = merge;
 		}
 		
 		@Override
@@ -85,6 +436,8 @@ public class AlgorithmFactory<T> {
 		if (upper > 0)
 			while (true) {
 				GuillotineContainer<T> container = bestScoreGuillotineFixedDimensions(bins, upper, upper, true);
+				if (container == null)
+					return null;
 				if (!container.hasOverflow())
 					break;
 				upper += upper;
@@ -97,6 +450,8 @@ public class AlgorithmFactory<T> {
 		while ((upper / lower) > 1.05) {
 			float nextlen = (upper + lower)/2;
 			GuillotineContainer<T> container = bestScoreGuillotineFixedDimensions(bins, nextlen, nextlen, true);
+			if (container == null)
+				return null;
 			if (container.hasOverflow())
 				lower = nextlen;
 			else {
@@ -109,6 +464,14 @@ public class AlgorithmFactory<T> {
 
 	}
 	
+	/**
+	 * Packs the bins into the best container the selected strategy finds.
+	 * 
+	 * @param bins
+	 * @param mandatoryfit
+	 * @return the placed bins, or null if the search was stopped before it 
+	 *         completed a single packing.
+	 */
 	public ArrayList<Bin<T>> bestGuillotinePack(
 			ArrayList<Bin<T>> bins, 
 			boolean mandatoryfit
@@ -116,10 +479,43 @@ public class AlgorithmFactory<T> {
 		
 		if (bins == null || bins.size() == 0)
 			return new ArrayList<Bin<T>>();
-		GuillotineContainer<T> container;
-		container = bestScoreGuillotineSlidingDimensions(bins, mandatoryfit);
-		//container = smallestSquareGuillotine(bins, mandatoryfit);
-		return container.bins;
+		
+		GuillotineContainer<T> container = bestGuillotineContainer(bins, mandatoryfit);
+		if (container == null)
+			return null;
+		
+		// Put the bins back in the order of the caller's list.
+		ArrayList<Bin<T>> placed = container.getBins();
+		ArrayList<Bin<T>> slots = new ArrayList<Bin<T>>(Collections.<Bin<T>>nCopies(bins.size(), null));
+		for (int i = 0; i < placed.size(); i++)
+			slots.set(container.getInputIndex(i), placed.get(i));
+		ArrayList<Bin<T>> result = new ArrayList<Bin<T>>(placed.size());
+		for (Bin<T> b : slots) {
+			if (b != null)
+				result.add(b);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Searches for the best container with the selected strategy.  The 
+	 * container holds the bins in the item order it packed them in; see 
+	 * {@link Container#getInputIndex(int)}.
+	 * 
+	 * @param bins
+	 * @param mandatoryfit
+	 * @return the best container, or null if the search was stopped before 
+	 *         it completed a single packing.
+	 */
+	public GuillotineContainer<T> bestGuillotineContainer(ArrayList<Bin<T>> bins, boolean mandatoryfit) {
+		stopped = false;
+		orderedInput = null;
+		orderings(bins);
+		if (strategy == SearchStrategy.SLIDING)
+			return bestScoreGuillotineSlidingDimensions(bins, mandatoryfit);
+		//return smallestSquareGuillotine(bins, mandatoryfit);
+		return bestScoreGuillotineAdaptiveDimensions(bins, mandatoryfit);
 	}
 
 	
@@ -142,48 +538,44 @@ public class AlgorithmFactory<T> {
 
 		
 		// Run through every possible rectangle, scoring the algorithm
-		// and making note of the parameters
+		// and making note of the parameters.  The candidate sizes are 
+		// listed up front so that the sequential and parallel searches 
+		// visit exactly the same bins in exactly the same order.
 		
-		GuillotineContainer<T> best = null;
-
-		GuillotineContainer<T> bestHorizontal = null;
-		GuillotineContainer<T> bestVertical = null;
+		ArrayList<Rect> vertical = new ArrayList<Rect>();
+		ArrayList<Rect> horizontal = new ArrayList<Rect>();
+		ArrayList<Rect> grid = new ArrayList<Rect>();
 		
 		float vert = 15.0F;
 		float horz = 15.0F;
 		
 		while (vert > 0.1) {
-			GuillotineContainer<T> next = bestScoreGuillotineFixedDimensions(bins, vert * sqlen, 100 * sqlen, mandatoryfit);
+			vertical.add(new Rect(0, 0, vert * sqlen, 100 * sqlen));
 			vert -= 0.05;
-			if (next == null)
-				continue;
-			if (bestVertical == null) 
-				bestVertical = next;
-			if (next.score() > bestVertical.score())
-				bestVertical = next;
 		}
 		while (horz > 0.1) {
-			GuillotineContainer<T> next = bestScoreGuillotineFixedDimensions(bins, 100 * sqlen, horz * sqlen, mandatoryfit);
+			horizontal.add(new Rect(0, 0, 100 * sqlen, horz * sqlen));
 			horz -= 0.05;
-			if (next == null)
-				continue;
-			if (bestHorizontal == null) 
-				bestHorizontal = next;
-			if (next.score() > bestHorizontal.score())
-				bestHorizontal = next;
 		}
 		for (float len1 = sqlen; len1 < 100 * sqlen; len1 += len1 * 0.5) {
 			for (float len2 = sqlen; len2 < 100 * sqlen; len2 += len2 * 0.5) {
-				GuillotineContainer<T> next = bestScoreGuillotineFixedDimensions(bins, len1, len2, mandatoryfit);
-				if (next == null)
-					continue;
-				if (best == null) 
-					best = next;
-				if (next.score() > best.score())
+				grid.add(new Rect(0, 0, len1, len2));
+			}
+		}
+
+		GuillotineContainer<T> bestVertical = bestScoreGuillotineDimensions(bins, vertical, mandatoryfit);
+		GuillotineContainer<T> bestHorizontal = bestScoreGuillotineDimensions(bins, horizontal, mandatoryfit);
+		GuillotineContainer<T> best = bestScoreGuillotineDimensions(bins, grid, mandatoryfit);
+
+		if (bestHorizontal == null || bestVertical == null || best == null) {
+			// The search was stopped; settle for whatever it found.
+			for (GuillotineContainer<T> next : Arrays.asList(bestHorizontal, bestVertical)) {
+				if (next != null && (best == null || next.score() > best.score()))
 					best = next;
-				
 			}
+			return best;
 		}
+		
 		System.out.printf("H: %12.2f %12.2f (%2.0f%%)        V: %12.2f %12.2f (%2.0f%%)       B: %12.2f %12.2f (%2.0f%%)\n", 
 				bestHorizontal.binWidth,
 				bestHorizontal.binHeight,
@@ -201,41 +593,480 @@ public class AlgorithmFactory<T> {
 	}
 
 	
-	private GuillotineContainer<T> bestScoreGuillotineFixedDimensions(ArrayList<Bin<T>> bins, float width, float height, boolean mandatoryfit) {
+	/**
+	 * Slides the bin size between a narrow strip, a flat strip and a grid 
+	 * of roughly square bins, but only tries a size when it can take the 
+	 * widest and the tallest bin and has room for their total area.  Each 
+	 * of the three families is bracketed with a coarse sweep first, after 
+	 * which the step around the best size is halved until it is as fine 
+	 * as the step of the sliding sweep.  Sizes that round to one that was 
+	 * already tried are skipped.
+	 * 
+	 * @param bins
+	 * @param mandatoryfit
+	 * @return the best container
+	 */
+	private GuillotineContainer<T> bestScoreGuillotineAdaptiveDimensions(ArrayList<Bin<T>> bins, boolean mandatoryfit) {
+		
+		float area = 0;
+		float widest = 0;
+		float tallest = 0;
+		for (Bin<T> b : bins) {
+			area += b.getHeight() * b.getWidth();
+			widest = Helper.max(widest, b.getWidth());
+			tallest = Helper.max(tallest, b.getHeight());
+		}
+		float sqlen = (float) Math.sqrt(area);
+		float strip = 100 * sqlen;
+		
+		long sizesBefore = sizesEvaluated.get();
+		long packingsBefore = packingsEvaluated.get();
+		
+		GuillotineContainer<T> bestVertical = bestScoreGuillotineStrip(bins, true, widest, tallest, area, sqlen, mandatoryfit);
+		GuillotineContainer<T> bestHorizontal = bestScoreGuillotineStrip(bins, false, tallest, widest, area, sqlen, mandatoryfit);
+		GuillotineContainer<T> best = bestScoreGuillotineGrid(bins, widest, tallest, sqlen, mandatoryfit);
+
+		GuillotineContainer<T> winner = null;
+		for (GuillotineContainer<T> next : Arrays.asList(best, bestHorizontal, bestVertical)) {
+			if (next == null)
+				continue;
+			if (winner == null) 
+				winner = next;
+			if (next.score() > winner.score())
+				winner = next;
+		}
+		
+		// Everything was infeasible, e.g. a bin longer than the strips.  Fall 
+		// back on a bin that holds everything.
+		if (winner == null && !shouldStop())
+			winner = bestScoreGuillotineFixedDimensions(bins, Helper.max(strip, widest), Helper.max(strip, tallest), mandatoryfit, newSizeBound());
+		if (winner == null)
+			return null;
+		
+		Helper.getGenericLogger().finest(String.format("Adaptive search: %d sizes, %d packings, best %.2f x %.2f (%2.0f%%)", 
+				sizesEvaluated.get() - sizesBefore,
+				packingsEvaluated.get() - packingsBefore,
+				winner.binWidth,
+				winner.binHeight,
+				winner.score() * 100
+				));
+		return winner;
+	}
+	
+	
+	/**
+	 * Searches the strip sizes of the sliding sweep: a bin 100 side 
+	 * lengths long whose other side runs from 15 side lengths down to the 
+	 * longest bin, or to the width the total area requires.
+	 * 
+	 * @param vertical true to vary the width of a tall strip, false to vary 
+	 *        the height of a wide one.
+	 * @param across the longest bin side across the strip.
+	 * @param along the longest bin side along the strip.
+	 */
+	private GuillotineContainer<T> bestScoreGuillotineStrip(ArrayList<Bin<T>> bins, boolean vertical, float across, float along, float area, float sqlen, boolean mandatoryfit) {
+		
+		float length = 100 * sqlen;
+		if (along > length)
+			return null;
+		float lo = Helper.max(across, area / length);
+		float hi = 15 * sqlen;
+		if (lo > hi)
+			return null;
+		
+		final int coarse = 12;
+		float resolution = 0.05F * sqlen;
+		HashSet<Long> tried = new HashSet<Long>();
+		ScoreBound bound = newSizeBound();
+		
+		ArrayList<Float> widths = new ArrayList<Float>();
+		for (int i = 0; i < coarse; i++)
+			widths.add(lo + (hi - lo) * i / (coarse - 1));
 		
 		GuillotineContainer<T> best = null;
+		float center = lo;
+		float step = (hi - lo) / (coarse - 1);
 		
-		for ( GuillotineContainer.FreeRectChoiceHeuristic h :  GuillotineContainer.FreeRectChoiceHeuristic.values()) {
-			for ( GuillotineContainer.GuillotineSplitHeuristic s :  GuillotineContainer.GuillotineSplitHeuristic.values()) {
-				for ( boolean merge : new boolean[]{true,false} ) {				
-					GuillotineParameters p = new GuillotineParameters(width, height, h, s, merge, mandatoryfit);
-					GuillotineContainer<T> next = guillotineSolution(p, bins);
-					if (next == null)
-						continue;
-					if (best == null) 
-						best = next;
-					if (next.score() > best.score())
-						best = next;
+		while (true) {
+			ArrayList<Rect> sizes = new ArrayList<Rect>();
+			ArrayList<Float> kept = new ArrayList<Float>();
+			for (float w : widths) {
+				if (w < lo || w > hi)
+					continue;
+				Rect size = vertical ? new Rect(0, 0, w, length) : new Rect(0, 0, length, w);
+				if (!tried.add(sizeKey(size, resolution)))
+					continue;
+				sizes.add(size);
+				kept.add(w);
+			}
+			
+			ArrayList<GuillotineContainer<T>> results = evaluateGuillotineDimensions(bins, sizes, mandatoryfit, bound);
+			for (int i = 0; i < results.size(); i++) {
+				GuillotineContainer<T> next = results.get(i);
+				if (next == null)
+					continue;
+				if (best == null || next.score() > best.score()) {
+					best = next;
+					center = kept.get(i);
 				}
 			}
+			
+			if (best == null || step <= resolution || shouldStop())
+				return best;
+			step /= 2;
+			widths.clear();
+			widths.add(center - step);
+			widths.add(center + step);
+		}
+	}
+	
+	
+	/**
+	 * Searches the grid of the sliding sweep, where both sides grow by half 
+	 * from the side length of the total area, with twice the step.  The 
+	 * best cell is then refined along either axis with a shrinking factor 
+	 * until it is finer than the step of the sliding grid.
+	 */
+	private GuillotineContainer<T> bestScoreGuillotineGrid(ArrayList<Bin<T>> bins, float widest, float tallest, float sqlen, boolean mandatoryfit) {
+		
+		float limit = 100 * sqlen;
+		float resolution = 0.05F * sqlen;
+		HashSet<Long> tried = new HashSet<Long>();
+		ScoreBound bound = newSizeBound();
+		
+		ArrayList<Rect> sizes = new ArrayList<Rect>();
+		for (float len1 = sqlen; len1 < limit; len1 *= 2.25) {
+			for (float len2 = sqlen; len2 < limit; len2 *= 2.25) {
+				if (len1 < widest || len2 < tallest)
+					continue;
+				Rect size = new Rect(0, 0, len1, len2);
+				if (tried.add(sizeKey(size, resolution)))
+					sizes.add(size);
+			}
+		}
+		
+		GuillotineContainer<T> best = null;
+		float factor = 2.25F;
+		
+		while (true) {
+			ArrayList<GuillotineContainer<T>> results = evaluateGuillotineDimensions(bins, sizes, mandatoryfit, bound);
+			for (GuillotineContainer<T> next : results) {
+				if (next == null)
+					continue;
+				if (best == null || next.score() > best.score())
+					best = next;
+			}
+			
+			if (best == null || factor <= 1.25F || shouldStop())
+				return best;
+			factor = (float) Math.sqrt(factor);
+			
+			sizes.clear();
+			float w = best.binWidth;
+			float h = best.binHeight;
+			for (Rect size : new Rect[] {
+					new Rect(0, 0, w / factor, h),
+					new Rect(0, 0, w * factor, h),
+					new Rect(0, 0, w, h / factor),
+					new Rect(0, 0, w, h * factor) }) {
+				if (size.width() < widest || size.height() < tallest 
+						|| size.width() >= limit || size.height() >= limit)
+					continue;
+				if (tried.add(sizeKey(size, resolution)))
+					sizes.add(size);
+			}
+		}
+	}
+	
+	
+	/**
+	 * @return a key that is equal for two sizes when they round to the same 
+	 *         multiple of the resolution.
+	 */
+	private static long sizeKey(Rect size, float resolution) {
+		long w = Math.round(size.width() / resolution);
+		long h = Math.round(size.height() / resolution);
+		return (w << 32) ^ h;
+	}
+	
+	
+	/**
+	 * @return a fresh bound for a search over bin sizes.
+	 */
+	private ScoreBound newSizeBound() {
+		return new ScoreBound(executor == null || parallelism != Parallelism.SIZES, null);
+	}
+	
+	
+	/**
+	 * Finds the best scoring container among the given bin sizes.  Runs the 
+	 * sizes on the executor when one was supplied, otherwise one after 
+	 * another.  Either way the first of several equally scored containers 
+	 * wins, so both paths return the same container.
+	 * <p>
+	 * The best score found so far is passed down as a bound, and candidates 
+	 * that can no longer beat it are abandoned part way.
+	 * 
+	 * @param bins
+	 * @param sizes candidate bin sizes; only width and height are used.
+	 * @param mandatoryfit
+	 * @return the best container, or null if no size produced one.
+	 */
+	private GuillotineContainer<T> bestScoreGuillotineDimensions(ArrayList<Bin<T>> bins, List<Rect> sizes, boolean mandatoryfit) {
+		
+		GuillotineContainer<T> best = null;
+		for (GuillotineContainer<T> next : evaluateGuillotineDimensions(bins, sizes, mandatoryfit, newSizeBound())) {
+			if (next == null)
+				continue;
+			if (best == null) 
+				best = next;
+			if (next.score() > best.score())
+				best = next;
+		}
+		return best;
+	}
+	
+	
+	/**
+	 * Finds the best scoring container for each of the given bin sizes, on 
+	 * the executor when one was supplied.
+	 * 
+	 * @param bins
+	 * @param sizes candidate bin sizes; only width and height are used.
+	 * @param mandatoryfit
+	 * @param bound the bound shared by the sizes.  Must have been created by 
+	 *        newSizeBound().
+	 * @return the container for each size, in order, or null where every 
+	 *         packing of the size was abandoned.
+	 */
+	private ArrayList<GuillotineContainer<T>> evaluateGuillotineDimensions(final ArrayList<Bin<T>> bins, List<Rect> sizes, final boolean mandatoryfit, final ScoreBound bound) {
+		
+		ArrayList<GuillotineContainer<T>> results = new ArrayList<GuillotineContainer<T>>(sizes.size());
+		
+		if (executor == null || parallelism != Parallelism.SIZES) {
+			for (Rect size : sizes)
+				results.add(bestScoreGuillotineFixedDimensions(bins, size.width(), size.height(), mandatoryfit, bound));
+		}
+		else {
+			ArrayList<Callable<GuillotineContainer<T>>> tasks = new ArrayList<Callable<GuillotineContainer<T>>>(sizes.size());
+			for (final Rect size : sizes) {
+				tasks.add(new Callable<GuillotineContainer<T>>() {
+					@Override
+					public GuillotineContainer<T> call() {
+						return bestScoreGuillotineFixedDimensions(bins, size.width(), size.height(), mandatoryfit, bound);
+					}
+				});
+			}
+			List<Future<GuillotineContainer<T>>> futures = invokeAll(tasks);
+			for (int i = 0; i < tasks.size(); i++)
+				results.add(futures == null ? null : getResult(futures.get(i)));
+		}
+		return results;
+	}
+
+	
+	/**
+	 * @return the completed futures, or null if the calling thread was 
+	 *         interrupted, which stops the search.
+	 */
+	private <R> List<Future<R>> invokeAll(List<Callable<R>> tasks) {
+		try {
+			return executor.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stopped = true;
+			return null;
+		}
+	}
+	
+	
+	/**
+	 * @return the result of the future, or null if it was cancelled or the 
+	 *         calling thread was interrupted, which stops the search.
+	 */
+	private <R> R getResult(Future<R> f) {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stopped = true;
+			return null;
+		} catch (CancellationException e) {
+			stopped = true;
+			return null;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	
+	/**
+	 * Packs the bins into a container of the given size with every 
+	 * combination of item order and guillotine heuristics, and returns the 
+	 * best scoring one.  With {@link Parallelism#HEURISTICS} the 
+	 * combinations run as separate tasks that share a best score bound.
+	 * 
+	 * @param bins
+	 * @param width
+	 * @param height
+	 * @param mandatoryfit
+	 * @return the best container, or null if the search was stopped first.
+	 */
+	public GuillotineContainer<T> bestScoreGuillotineFixedDimensions(ArrayList<Bin<T>> bins, float width, float height, boolean mandatoryfit) {
+		orderedInput = null;
+		return bestScoreGuillotineFixedDimensions(bins, width, height, mandatoryfit, null);
+	}
+
+
+	/**
+	 * Packs the bins into a container of the given size with every
+	 * combination of item order and MaxRects heuristic, and returns the
+	 * best scoring one that holds all of them.
+	 *
+	 * @param bins
+	 * @param width
+	 * @param height
+	 * @return the best container, or null if none held all of the bins or
+	 *         the search was stopped first.
+	 */
+	public MaxRectsContainer<T> bestScoreMaxRectsFixedDimensions(ArrayList<Bin<T>> bins, float width, float height) {
+		orderedInput = null;
+		sizesEvaluated.incrementAndGet();
+
+		MaxRectsContainer<T> best = null;
+		for (OrderedBins ordered : orderings(bins)) {
+			for (MaxRectsContainer.FreeRectChoiceHeuristic h : MaxRectsContainer.FreeRectChoiceHeuristic.values()) {
+				if (shouldStop())
+					return best;
+				packingsEvaluated.incrementAndGet();
+				MaxRectsContainer<T> container = takeMaxRects(width, height);
+				container.setInputOrder(ordered.inputIndex);
+				for (Bin<T> b : ordered.bins) {
+					if (container.insert(b, h).height() == 0)
+						break;
+				}
+				if (!container.hasOverflow() && (best == null || container.score() > best.score())) {
+					recycle(best);
+					best = container;
+				}
+				else
+					recycle(container);
+			}
 		}
 		return best;
 	}
 	
 	
-	private GuillotineContainer<T> guillotineSolution(GuillotineParameters parms, List<Bin<T>> bins) {
+	/**
+	 * @param outer the bound of the enclosing search, or null.  The best 
+	 *        container found is offered to it.
+	 * @return the best container, or null if every combination was 
+	 *         abandoned against the outer bound or the search was stopped.
+	 */
+	private GuillotineContainer<T> bestScoreGuillotineFixedDimensions(final ArrayList<Bin<T>> bins, float width, float height, boolean mandatoryfit, ScoreBound outer) {
+		
+		if (shouldStop())
+			return null;
+		sizesEvaluated.incrementAndGet();
+		
+		float area = 0;
+		for (Bin<T> b : bins)
+			area += b.getWidth() * b.getHeight();
+		final float usedArea = area;
 		
-		GuillotineContainer<T> container = new GuillotineContainer<T>(parms.width, parms.height, 0, 0);  // FIXME
+		ArrayList<GuillotineParameters> portfolio = new ArrayList<GuillotineParameters>();
+		for ( OrderedBins ordered : orderings(bins)) {
+			for ( GuillotineContainer.FreeRectChoiceHeuristic h :  GuillotineContainer.FreeRectChoiceHeuristic.values()) {
+				for ( GuillotineContainer.GuillotineSplitHeuristic s :  GuillotineContainer.GuillotineSplitHeuristic.values()) {
+					for ( boolean merge : new boolean[]{true,false} ) {				
+						GuillotineParameters p = new GuillotineParameters(width, height, h, s, merge, mandatoryfit);
+						p.ordered = ordered;
+						portfolio.add(p);
+					}
+				}
+			}
+		}
+		
+		ArrayList<GuillotineContainer<T>> results = new ArrayList<GuillotineContainer<T>>(portfolio.size());
+		boolean sequential = executor == null || parallelism != Parallelism.HEURISTICS;
+		final ScoreBound bound = new ScoreBound(sequential, outer);
+		
+		if (sequential) {
+			for (GuillotineParameters p : portfolio)
+				results.add(guillotineSolution(p, usedArea, bound));
+		}
+		else {
+			ArrayList<Callable<GuillotineContainer<T>>> tasks = new ArrayList<Callable<GuillotineContainer<T>>>(portfolio.size());
+			for (final GuillotineParameters p : portfolio) {
+				tasks.add(new Callable<GuillotineContainer<T>>() {
+					@Override
+					public GuillotineContainer<T> call() {
+						return guillotineSolution(p, usedArea, bound);
+					}
+				});
+			}
+			List<Future<GuillotineContainer<T>>> futures = invokeAll(tasks);
+			for (int i = 0; i < tasks.size(); i++)
+				results.add(futures == null ? null : getResult(futures.get(i)));
+		}
+		
+		GuillotineContainer<T> best = null;
+		for (GuillotineContainer<T> next : results) {
+			if (next == null)
+				continue;
+			if (best == null) 
+				best = next;
+			if (next.score() > best.score())
+				best = next;
+		}
+		for (GuillotineContainer<T> next : results) {
+			if (next != best)
+				recycle(next);
+		}
+		if (best != null && outer != null)
+			outer.offer(best.score());
+		return best;
+	}
+	
+	
+	/**
+	 * Packs the bins with the given parameters.  The packing is abandoned 
+	 * as soon as the bound excludes the best score it can still reach: 
+	 * all of the bins' area inside the bounding box placed so far, or 
+	 * nothing at all once a bin overflowed.
+	 * 
+	 * @param parms
+	 * @param usedArea the total area of the bins.
+	 * @param bound
+	 * @return the packed container, or null if it was abandoned or the 
+	 *         search was stopped.
+	 */
+	private GuillotineContainer<T> guillotineSolution(GuillotineParameters parms, float usedArea, ScoreBound bound) {
+		
+		packingsEvaluated.incrementAndGet();
+		GuillotineContainer<T> container = takeGuillotine(parms.width, parms.height);
+		container.setInputOrder(parms.ordered.inputIndex);
 
 		// Pack each rectangle (w_i, h_i) the user inputted on the command line.
-		for(Bin<T> b : bins)
+		for(Bin<T> b : parms.ordered.bins)
 		{
 			// Perform the packing.
 			Rect packedRect = container.insert(b, parms.merge, parms.rectChoice, parms.splitChoice);
 			if (parms.mandatoryfit && (packedRect.x() < 0 || packedRect.y() < 0)) {
 				throw new RuntimeException("Could not pack rectangle");
 			}
+			
+			float upper = container.hasOverflow() 
+					? Float.NEGATIVE_INFINITY 
+					: usedArea / (container.getMaxX() * container.getMaxY());
+			if (bound.excludes(upper) || shouldStop()) {
+				recycle(container);
+				return null;
+			}
 		}
+		bound.offer(container.score());
 		return container;
 	}
 
@@ -1,46 +1,296 @@
 package com.fox.brian.binpack.algorithms;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import com.fox.brian.binpack.Bin;
 import com.fox.brian.binpack.util.Helper;
+import com.fox.brian.binpack.util.Rect;
 
 public abstract class Container<T> {
 	
 	protected float binWidth;
 	protected float binHeight;
-	protected ArrayList<Bin<T>> bins;
 	protected boolean overflow = false;
 	protected boolean allowRotation = false;
 	
+	/*
+	 * Statistics over the rectangles placed so far, kept up to date by 
+	 * recordPlacement() so that score() and occupancy() need not walk 
+	 * the placements.
+	 */
+	private float usedArea = 0;
+	private float maxX = 0;
+	private float maxY = 0;
+	private int placedCount = 0;
+	
+	/*
+	 * The placed bins, kept as the caller's bins and their coordinates.  
+	 * Most containers of a search are thrown away, so the placed copies 
+	 * are only made when someone asks for them.
+	 */
+	private ArrayList<Bin<T>> sources = new ArrayList<Bin<T>>();
+	private float[] coordinates = new float[16];
+	private int[] sequence = new int[8];
+	private boolean[] rotated = new boolean[8];
+	private ArrayList<Bin<T>> bins;
+	
+	/** The number of bins offered to the container, placed or not. */
+	protected int inserts = 0;
+	
+	/** Where each offered bin came from in the caller's list, or null. */
+	private int[] inputOrder;
+	
+	/**
+	 * Empties the container and gives it a new size, as if it had just 
+	 * been created, but keeps the capacity it has grown so far.  The input 
+	 * order is forgotten as well.
+	 * 
+	 * @param width
+	 * @param height
+	 */
+	public abstract void reset(float width, float height);
+	
 	public boolean hasOverflow() {
 		return overflow;
 	}
 	
+	/**
+	 * @return the ratio of the used area to the bounding box of all 
+	 *         placed rectangles, or negative infinity after an overflow.
+	 */
 	public float score() {
 		
 		if (overflow)
 			return Float.NEGATIVE_INFINITY;
 		
-		float maxx = 0; 
-		float maxy = 0;
-		float usedArea = 0;
-		for (Bin<T> b : bins) {
-			if (b.getX() < 0 || b.getY() < 0)
-				return 0;
-			maxx = Helper.max(maxx, b.getX() + b.getWidth());
-			maxy = Helper.max(maxy, b.getY() + b.getHeight());
-			usedArea += b.getWidth() * b.getHeight();
-		}
-		return usedArea / (maxx * maxy);
+		return usedArea / (maxX * maxY);
 	};
 	
+	/**
+	 * Computes the ratio of used/total surface area. 0.00 means no space is 
+	 * yet used, 1.00 means the whole bin is used.
+	 * 
+	 * @return
+	 */
+	public float occupancy() {
+		return usedArea / (binWidth * binHeight);
+	}
+	
+	/**
+	 * @return copies of the placed bins at their positions, in the order 
+	 *         they were placed.
+	 */
+	public ArrayList<Bin<T>> getBins() {
+		if (bins == null) {
+			bins = new ArrayList<Bin<T>>(sources.size());
+			for (int i = 0; i < sources.size(); i++)
+				bins.add(new Bin<T>(sources.get(i), coordinates[2*i], coordinates[2*i+1], 0, rotated[i]));
+		}
+		return bins;
+	}
+	
+	/**
+	 * Tells the container that the bins will be offered in a different 
+	 * order than the caller's list, so that it can tell where each placed 
+	 * bin came from.
+	 * 
+	 * @param inputOrder the index in the caller's list of each bin, in the 
+	 *        order the bins will be offered.
+	 */
+	public void setInputOrder(int[] inputOrder) {
+		this.inputOrder = inputOrder;
+	}
+	
+	/**
+	 * @param i the index of a placed bin in {@link #getBins()}.
+	 * @return the index of the bin in the caller's list.  Without an input 
+	 *         order, this counts every insert, including those that did 
+	 *         not fit.
+	 */
+	public int getInputIndex(int i) {
+		return inputOrder == null ? sequence[i] : inputOrder[sequence[i]];
+	}
+	
+	/**
+	 * @return the total area of the rectangles placed so far.
+	 */
+	public float getUsedArea() {
+		return usedArea;
+	}
+	
+	/**
+	 * @return the right edge of the rightmost rectangle placed so far.
+	 */
+	public float getMaxX() {
+		return maxX;
+	}
+	
+	/**
+	 * @return the bottom edge of the lowest rectangle placed so far.
+	 */
+	public float getMaxY() {
+		return maxY;
+	}
+	
+	/**
+	 * @return the number of rectangles placed so far.
+	 */
+	public int getPlacedCount() {
+		return placedCount;
+	}
+	
+	public float getBinWidth() {
+		return binWidth;
+	}
+	
+	public float getBinHeight() {
+		return binHeight;
+	}
+	
+	/**
+	 * Adds a newly placed rectangle to the statistics.  Subclasses call 
+	 * this once for every rectangle they place.
+	 */
+	protected void recordPlacement(float x, float y, float width, float height) {
+		maxX = Helper.max(maxX, x + width);
+		maxY = Helper.max(maxY, y + height);
+		usedArea += width * height;
+		placedCount++;
+	}
+	
+	/**
+	 * Remembers that the given bin was placed at the given position.  
+	 * Subclasses call this once for every bin they place, after counting 
+	 * the insert in {@link #inserts}.
+	 */
+	protected void recordBin(Bin<T> source, float x, float y) {
+		recordBin(source, x, y, false);
+	}
+	
+	/**
+	 * Remembers that the given bin was placed at the given position, 
+	 * turned by 90 degrees if rotated is set.
+	 */
+	protected void recordBin(Bin<T> source, float x, float y, boolean rotated) {
+		int i = sources.size();
+		if (2*i + 2 > coordinates.length)
+			coordinates = Arrays.copyOf(coordinates, 2 * coordinates.length);
+		if (i + 1 > sequence.length) {
+			sequence = Arrays.copyOf(sequence, 2 * sequence.length);
+			this.rotated = Arrays.copyOf(this.rotated, 2 * this.rotated.length);
+		}
+		coordinates[2*i] = x;
+		coordinates[2*i+1] = y;
+		sequence[i] = inserts - 1;
+		this.rotated[i] = rotated;
+		sources.add(source);
+		bins = null;
+	}
+	
+	/**
+	 * @return the index of the given bin among the placed ones, compared 
+	 *         by identity, or -1 if it was not placed here.
+	 */
+	protected int indexOfBin(Bin<T> bin) {
+		for (int i = 0; i < sources.size(); i++) {
+			if (sources.get(i) == bin)
+				return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * @return the area taken by the i-th placed bin.
+	 */
+	protected Rect placement(int i) {
+		Bin<T> b = sources.get(i);
+		return rotated[i] 
+				? new Rect(coordinates[2*i], coordinates[2*i+1], b.getHeight(), b.getWidth())
+				: new Rect(coordinates[2*i], coordinates[2*i+1], b.getWidth(), b.getHeight());
+	}
+	
+	/**
+	 * @return the placed bins as the caller handed them in.
+	 */
+	protected List<Bin<T>> placedSources() {
+		return Collections.unmodifiableList(sources);
+	}
+	
+	/**
+	 * Forgets the i-th placed bin.  Subclasses call this after they have 
+	 * returned its area to the free space.
+	 * 
+	 * @param i
+	 * @param used the rectangles still placed, to find the new bounding 
+	 *        box.
+	 */
+	protected void forgetBin(int i, List<Rect> used) {
+		Rect r = placement(i);
+		int n = sources.size();
+		System.arraycopy(coordinates, 2*i + 2, coordinates, 2*i, 2*(n - i - 1));
+		System.arraycopy(sequence, i + 1, sequence, i, n - i - 1);
+		System.arraycopy(rotated, i + 1, rotated, i, n - i - 1);
+		sources.remove(i);
+		bins = null;
+		
+		usedArea -= r.width() * r.height();
+		placedCount--;
+		maxX = 0;
+		maxY = 0;
+		for (Rect u : used) {
+			maxX = Helper.max(maxX, u.x() + u.width());
+			maxY = Helper.max(maxY, u.y() + u.height());
+		}
+	}
+	
+	/**
+	 * Takes over the placements of a container that packed the same bins 
+	 * again, in the given order.
+	 * 
+	 * @param other
+	 * @param order the index among this container's placed bins of each 
+	 *        bin the other container placed, in its order.
+	 */
+	protected void takePlacements(Container<T> other, int[] order) {
+		int[] remapped = new int[other.sequence.length];
+		for (int k = 0; k < order.length; k++)
+			remapped[k] = sequence[order[k]];
+		
+		sources = new ArrayList<Bin<T>>(other.sources);
+		coordinates = other.coordinates.clone();
+		rotated = other.rotated.clone();
+		sequence = remapped;
+		bins = null;
+		usedArea = other.usedArea;
+		maxX = other.maxX;
+		maxY = other.maxY;
+		placedCount = other.placedCount;
+	}
+	
+	/**
+	 * Forgets all placements.  Subclasses call this when they start over 
+	 * with an empty bin.
+	 */
+	protected void clearPlacements() {
+		sources.clear();
+		bins = null;
+		inserts = 0;
+		usedArea = 0;
+		maxX = 0;
+		maxY = 0;
+		placedCount = 0;
+		overflow = false;
+	}
+	
 	
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
-		sb.append(String.format("Bins: %4d Score: %.5f", bins.size(), score()));
-		for (Bin<T> b : bins)
+		sb.append(String.format("Bins: %4d Score: %.5f", sources.size(), score()));
+		for (Bin<T> b : getBins())
 			sb.append(String.format("\n    Location: (%8.2f, %8.2f)   Width: %8.2f   Height: %8.2f %-50s", b.getX(), b.getY(), b.getWidth(), b.getHeight(), b.toSummary()));
 		return sb.toString();
 	}
@@ -0,0 +1,26 @@
+package com.fox.brian.binpack.algorithms;
+
+/**
+ * The kinds of container the layouts can be built with.
+ */
+public enum ContainerType {
+	
+	/** {@link GuillotineContainer}: every placement can be cut free with 
+	 *  straight cuts through the whole bin. */
+	GUILLOTINE,
+	
+	/** {@link MaxRectsContainer}: tighter layouts, possibly turning bins 
+	 *  by 90 degrees. */
+	MAXRECTS,
+	
+	/** {@link ShelfContainer}: rows of bins, possibly turned, with the 
+	 *  gaps above short bins filled later.  Much faster than the above, 
+	 *  and looser. */
+	SHELF,
+	
+	/** {@link ShelfNextFitContainer}: rows of bins, possibly turned, each 
+	 *  placed in constant time and never moved.  The fastest and the 
+	 *  loosest. */
+	SHELF_NEXT_FIT
+	
+}
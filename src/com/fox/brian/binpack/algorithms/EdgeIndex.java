@@ -0,0 +1,149 @@
+package com.fox.brian.binpack.algorithms;
+
+import java.util.Arrays;
+
+import com.fox.brian.binpack.util.Rect;
+
+/**
+ * The edges of the placed rectangles, looked up by the exact coordinate 
+ * they lie on, for the contact point rule.  A candidate position only 
+ * touches edges on the four lines its own sides lie on, so its score 
+ * comes from those lines instead of from every placed rectangle.
+ */
+final class EdgeIndex {
+	
+	/**
+	 * The edges on one line, as intervals along it sorted by their start. 
+	 * Edges of the same kind on one line belong to rectangles that do not 
+	 * overlap, so they are sorted by their end as well.
+	 */
+	private static final class Edges {
+		float[] from = new float[4];
+		float[] to = new float[4];
+		int size = 0;
+		
+		void add(float start, float end) {
+			if (size == from.length) {
+				from = Arrays.copyOf(from, 2 * size);
+				to = Arrays.copyOf(to, 2 * size);
+			}
+			int i = size;
+			while (i > 0 && from[i - 1] > start) {
+				from[i] = from[i - 1];
+				to[i] = to[i - 1];
+				i--;
+			}
+			from[i] = start;
+			to[i] = end;
+			size++;
+		}
+		
+		/**
+		 * Adds up the length each edge shares with the interval.
+		 */
+		int touching(int score, float start, float end) {
+			// Skip the edges that end before the interval starts.
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (to[mid] < start)
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			for (int i = low; i < size && from[i] <= end; i++)
+				score += Math.min(to[i], end) - Math.max(from[i], start);
+			return score;
+		}
+	}
+	
+	/**
+	 * Maps a coordinate to the edges on it, by open addressing.
+	 */
+	private static final class Lines {
+		private float[] keys = new float[16];
+		private Edges[] edges = new Edges[16];
+		private int count = 0;
+		
+		private int slot(float key) {
+			int mask = keys.length - 1;
+			int h = Float.floatToIntBits(key) * 0x9E3779B9;
+			int i = (h ^ h >>> 16) & mask;
+			while (edges[i] != null && keys[i] != key)
+				i = (i + 1) & mask;
+			return i;
+		}
+		
+		Edges get(float key) {
+			return edges[slot(key + 0.0F)];
+		}
+		
+		void add(float key, float start, float end) {
+			// Adding 0 turns -0 into 0, which is equal to it but hashes apart.
+			key += 0.0F;
+			int i = slot(key);
+			if (edges[i] == null) {
+				if (2 * (count + 1) > keys.length) {
+					grow();
+					i = slot(key);
+				}
+				keys[i] = key;
+				edges[i] = new Edges();
+				count++;
+			}
+			edges[i].add(start, end);
+		}
+		
+		private void grow() {
+			float[] oldKeys = keys;
+			Edges[] oldEdges = edges;
+			keys = new float[2 * oldKeys.length];
+			edges = new Edges[2 * oldKeys.length];
+			for (int j = 0; j < oldKeys.length; j++)
+				if (oldEdges[j] != null) {
+					int i = slot(oldKeys[j]);
+					keys[i] = oldKeys[j];
+					edges[i] = oldEdges[j];
+				}
+		}
+		
+		int touching(int score, float key, float start, float end) {
+			Edges e = get(key);
+			return e == null ? score : e.touching(score, start, end);
+		}
+	}
+	
+	private final Lines left = new Lines();
+	private final Lines right = new Lines();
+	private final Lines top = new Lines();
+	private final Lines bottom = new Lines();
+	
+	
+	void add(Rect r) {
+		left.add(r.x(), r.y(), r.y() + r.height());
+		right.add(r.x() + r.width(), r.y(), r.y() + r.height());
+		top.add(r.y(), r.x(), r.x() + r.width());
+		bottom.add(r.y() + r.height(), r.x(), r.x() + r.width());
+	}
+	
+	
+	/**
+	 * Adds the length of the placed edges that the sides of the given 
+	 * rectangle touch to the score.
+	 * 
+	 * @param score
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 * @return the new score.
+	 */
+	int touching(int score, float x, float y, float width, float height) {
+		score = left.touching(score, x + width, y, y + height);
+		score = right.touching(score, x, y, y + height);
+		score = top.touching(score, y + height, x, x + width);
+		return bottom.touching(score, y, x, x + width);
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.fox.brian.binpack.algorithms;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.fox.brian.binpack.util.Rect;
+
+/**
+ * A uniform grid over a bin that finds the free rectangles a new 
+ * rectangle overlaps without testing every one of them.  Each free 
+ * rectangle is listed in every cell it covers, and numbered in the order 
+ * it was added, which is the order it holds in the free list. 
+ * <p> 
+ * Removal finds the rectangle in each of its cells by a scan, and moves 
+ * the last entry of the cell into its place.  The scan is cheap while 
+ * cells hold a few rectangles each, and grows with them when many small 
+ * free rectangles crowd into one cell.
+ */
+final class FreeRectGrid {
+	
+	private static final int CELLS = 16;
+	
+	private static final class Entry {
+		final Rect rect;
+		final long order;
+		int visited;
+		
+		Entry(Rect rect, long order) {
+			this.rect = rect;
+			this.order = order;
+		}
+	}
+	
+	private float cellWidth;
+	private float cellHeight;
+	private final ArrayList<ArrayList<Entry>> cells;
+	private final IdentityHashMap<Rect, Entry> entries = new IdentityHashMap<Rect, Entry>();
+	private final ArrayList<Entry> found = new ArrayList<Entry>();
+	private long added = 0;
+	private int visit = 0;
+	
+	
+	FreeRectGrid(float width, float height) {
+		cells = new ArrayList<ArrayList<Entry>>(CELLS * CELLS);
+		for (int i = 0; i < CELLS * CELLS; i++)
+			cells.add(new ArrayList<Entry>());
+		reset(width, height);
+	}
+	
+	
+	/**
+	 * Empties the grid and lays it over a bin of the given size, keeping 
+	 * the cells it has already allocated.
+	 * 
+	 * @param width
+	 * @param height
+	 */
+	void reset(float width, float height) {
+		cellWidth = width > 0 ? width / CELLS : 1;
+		cellHeight = height > 0 ? height / CELLS : 1;
+		for (ArrayList<Entry> cell : cells)
+			cell.clear();
+		entries.clear();
+		added = 0;
+	}
+	
+	
+	private static int cell(float position, float size) {
+		int c = (int) (position / size);
+		return c < 0 ? 0 : c >= CELLS ? CELLS - 1 : c;
+	}
+	
+	
+	void add(Rect r) {
+		Entry e = new Entry(r, added++);
+		entries.put(r, e);
+		int right = cell(r.x() + r.width(), cellWidth);
+		int bottom = cell(r.y() + r.height(), cellHeight);
+		for (int row = cell(r.y(), cellHeight); row <= bottom; row++)
+			for (int col = cell(r.x(), cellWidth); col <= right; col++)
+				cells.get(row * CELLS + col).add(e);
+	}
+	
+	
+	void remove(Rect r) {
+		Entry e = entries.remove(r);
+		int right = cell(r.x() + r.width(), cellWidth);
+		int bottom = cell(r.y() + r.height(), cellHeight);
+		for (int row = cell(r.y(), cellHeight); row <= bottom; row++)
+			for (int col = cell(r.x(), cellWidth); col <= right; col++) {
+				ArrayList<Entry> cell = cells.get(row * CELLS + col);
+				// The cells are searched in any order, so the last entry 
+				// can fill the hole.
+				int i = cell.indexOf(e);
+				int last = cell.size() - 1;
+				cell.set(i, cell.get(last));
+				cell.remove(last);
+			}
+	}
+	
+	
+	/**
+	 * @param r a rectangle in the grid.
+	 * @return the number of rectangles added before r.
+	 */
+	long order(Rect r) {
+		return entries.get(r).order;
+	}
+	
+	
+	/**
+	 * Finds the rectangles in the grid whose interior meets the interior 
+	 * of the given one.
+	 * 
+	 * @param node
+	 * @param out [out] the rectangles found, in the order they were added.
+	 */
+	void overlapping(Rect node, List<Rect> out) {
+		out.clear();
+		found.clear();
+		visit++;
+		int right = cell(node.x() + node.width(), cellWidth);
+		int bottom = cell(node.y() + node.height(), cellHeight);
+		for (int row = cell(node.y(), cellHeight); row <= bottom; row++)
+			for (int col = cell(node.x(), cellWidth); col <= right; col++) {
+				ArrayList<Entry> cell = cells.get(row * CELLS + col);
+				for (int i = 0; i < cell.size(); i++) {
+					Entry e = cell.get(i);
+					if (e.visited == visit)
+						continue;
+					e.visited = visit;
+					Rect r = e.rect;
+					if (node.x() < r.x() + r.width() && node.x() + node.width() > r.x()
+							&& node.y() < r.y() + r.height() && node.y() + node.height() > r.y())
+						found.add(e);
+				}
+			}
+		
+		// Few rectangles meet any one node, so an insertion sort will do.
+		for (int i = 1; i < found.size(); i++) {
+			Entry e = found.get(i);
+			int j = i;
+			for (; j > 0 && found.get(j - 1).order > e.order; j--)
+				found.set(j, found.get(j - 1));
+			found.set(j, e);
+		}
+		for (Entry e : found)
+			out.add(e.rect);
+	}
+
+}
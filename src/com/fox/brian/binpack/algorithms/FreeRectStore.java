@@ -0,0 +1,594 @@
+package com.fox.brian.binpack.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.fox.brian.binpack.util.Rect;
+
+/**
+ * The free rectangles of a container, kept as four parallel float arrays 
+ * rather than a list of Rect objects, so that a scan over thousands of 
+ * them reads straight through memory and allocates nothing.  Removal 
+ * moves the last rectangle into the hole, so indices are only stable 
+ * until the next removal. 
+ * <p> 
+ * Once {@link #indexEdges()} has been called the store also finds a 
+ * rectangle by any of its four edges, and keeps track of the rectangles 
+ * added or changed since they were last looked at, for merging.  Once 
+ * {@link #indexSizes} has been called it also keeps the rectangles 
+ * ordered by width, by height and by area, for best fit searches.
+ */
+final class FreeRectStore {
+	
+	/** The sides a rectangle can be found by in {@link #find}. */
+	static final int TOP = 0, BOTTOM = 1, LEFT = 2, RIGHT = 3;
+	
+	/** The orders the rectangles can be walked in by {@link #ordered}. */
+	static final int BY_WIDTH = 0, BY_HEIGHT = 1, BY_AREA = 2;
+	
+	/** 
+	 * Below this many rectangles a scan finds an edge faster than keeping 
+	 * the table up to date.
+	 */
+	private static final int SCAN_SIZE = 64;
+	
+	private float[] x;
+	private float[] y;
+	private float[] width;
+	private float[] height;
+	private int size = 0;
+	
+	private boolean indexed = false;
+	private EdgeTable[] edges;
+	/** The tables of an index dropped by {@link #clear}, for the next one. */
+	private EdgeTable[] spareEdges;
+	private boolean[] dirty;
+	private int[] pending;
+	private int pendingCount = 0;
+	
+	private SizeOrder[] orders;
+	
+	
+	FreeRectStore() {
+		this(16);
+	}
+	
+	
+	FreeRectStore(int capacity) {
+		x = new float[capacity];
+		y = new float[capacity];
+		width = new float[capacity];
+		height = new float[capacity];
+	}
+	
+	
+	int size() { return size; }
+	float x(int i) { return x[i]; }
+	float y(int i) { return y[i]; }
+	float width(int i) { return width[i]; }
+	float height(int i) { return height[i]; }
+	
+	
+	void add(float x, float y, float width, float height) {
+		if (size == this.x.length) {
+			int capacity = Math.max(16, 2 * size);
+			this.x = Arrays.copyOf(this.x, capacity);
+			this.y = Arrays.copyOf(this.y, capacity);
+			this.width = Arrays.copyOf(this.width, capacity);
+			this.height = Arrays.copyOf(this.height, capacity);
+			if (indexed)
+				dirty = Arrays.copyOf(dirty, capacity);
+		}
+		int i = size++;
+		write(i, x, y, width, height);
+		if (orders != null)
+			putSizes(i);
+		if (indexed) {
+			if (edges != null)
+				putEdges(i);
+			else if (size > SCAN_SIZE)
+				tableEdges();
+			markDirty(i);
+		}
+	}
+	
+	
+	void set(int i, float x, float y, float width, float height) {
+		if (edges != null)
+			removeEdges(i);
+		if (orders != null)
+			removeSizes(i);
+		write(i, x, y, width, height);
+		if (orders != null)
+			putSizes(i);
+		if (indexed) {
+			if (edges != null)
+				putEdges(i);
+			markDirty(i);
+		}
+	}
+	
+	
+	private void write(int i, float x, float y, float width, float height) {
+		this.x[i] = x;
+		this.y[i] = y;
+		this.width[i] = width;
+		this.height[i] = height;
+	}
+	
+	
+	/**
+	 * Removes rectangle i by moving the last rectangle into its place.
+	 * 
+	 * @param i
+	 */
+	void remove(int i) {
+		if (edges != null) {
+			removeEdges(i);
+			if (i != size - 1)
+				removeEdges(size - 1);
+		}
+		if (orders != null) {
+			removeSizes(i);
+			if (i != size - 1)
+				renumberSizes(size - 1, i);
+		}
+		int last = --size;
+		if (i != last)
+			write(i, x[last], y[last], width[last], height[last]);
+		if (indexed) {
+			if (i != last) {
+				// The edges of the moved rectangle go in again under its 
+				// new index.
+				if (edges != null)
+					putEdges(i);
+				dirty[i] = false;
+				if (dirty[last])
+					markDirty(i);
+			}
+			dirty[last] = false;
+		}
+	}
+	
+	
+	/**
+	 * Removes every rectangle and stops keeping the edge index, so a store 
+	 * reused without merging does not pay for it.  What the index used is 
+	 * kept for when {@link #indexEdges} starts it again.
+	 */
+	void clear() {
+		if (indexed) {
+			if (edges != null) {
+				for (EdgeTable e : edges)
+					e.clear();
+				spareEdges = edges;
+				edges = null;
+			}
+			Arrays.fill(dirty, 0, size, false);
+			pendingCount = 0;
+			indexed = false;
+		}
+		if (orders != null)
+			for (SizeOrder o : orders)
+				o.size = 0;
+		size = 0;
+	}
+	
+	
+	/**
+	 * @return a copy of the free rectangles as Rect objects.
+	 */
+	ArrayList<Rect> toList() {
+		ArrayList<Rect> list = new ArrayList<Rect>(size);
+		for (int i = 0; i < size; i++)
+			list.add(new Rect(x[i], y[i], width[i], height[i]));
+		return list;
+	}
+	
+	
+	/**
+	 * Starts or stops keeping the rectangles ordered by size.
+	 * 
+	 * @param on
+	 */
+	void indexSizes(boolean on) {
+		if (!on) {
+			orders = null;
+			return;
+		}
+		if (orders != null)
+			return;
+		orders = new SizeOrder[3];
+		for (int order = BY_WIDTH; order <= BY_AREA; order++)
+			orders[order] = new SizeOrder();
+		for (int i = 0; i < size; i++)
+			putSizes(i);
+	}
+	
+	
+	boolean sizesIndexed() {
+		return orders != null;
+	}
+	
+	
+	/**
+	 * @param order {@link #BY_WIDTH}, {@link #BY_HEIGHT} or {@link #BY_AREA}.
+	 * @param key a width, height or area.
+	 * @return the position in the order of the first rectangle whose 
+	 *         width, height or area is at least the key.
+	 */
+	int firstAtLeast(int order, float key) {
+		return orders[order].first(key, Float.NEGATIVE_INFINITY);
+	}
+	
+	
+	/**
+	 * @param order
+	 * @param position
+	 * @return the width, height or area of the rectangle at the given 
+	 *         position in the order, or positive infinity past its end.
+	 */
+	float orderKey(int order, int position) {
+		SizeOrder o = orders[order];
+		return position < o.size ? o.key[position] : Float.POSITIVE_INFINITY;
+	}
+	
+	
+	/**
+	 * @param order
+	 * @param position
+	 * @return the index of the rectangle at the given position in the order.
+	 */
+	int ordered(int order, int position) {
+		return orders[order].index[position];
+	}
+	
+	
+	/**
+	 * Finds a rectangle of exactly the given size.  Rectangles of the same 
+	 * width sit next to each other in the width order, sorted by height, 
+	 * so this is a binary search.
+	 * 
+	 * @param width
+	 * @param height
+	 * @return the lowest index of a rectangle of that size, or -1.
+	 */
+	int findSize(float width, float height) {
+		SizeOrder o = orders[BY_WIDTH];
+		int found = -1;
+		for (int p = o.first(width, height); 
+				p < o.size && o.key[p] == width && o.second[p] == height; p++)
+			if (found < 0 || o.index[p] < found)
+				found = o.index[p];
+		return found;
+	}
+	
+	
+	private void putSizes(int i) {
+		orders[BY_WIDTH].put(width[i], height[i], i);
+		orders[BY_HEIGHT].put(height[i], width[i], i);
+		orders[BY_AREA].put(width[i] * height[i], 0, i);
+	}
+	
+	
+	private void renumberSizes(int i, int j) {
+		orders[BY_WIDTH].renumber(width[i], height[i], i, j);
+		orders[BY_HEIGHT].renumber(height[i], width[i], i, j);
+		orders[BY_AREA].renumber(width[i] * height[i], 0, i, j);
+	}
+	
+	
+	private void removeSizes(int i) {
+		orders[BY_WIDTH].remove(width[i], height[i], i);
+		orders[BY_HEIGHT].remove(height[i], width[i], i);
+		orders[BY_AREA].remove(width[i] * height[i], 0, i);
+	}
+	
+	
+	/**
+	 * Starts keeping the edge index, if it is not kept yet.  All 
+	 * rectangles count as changed then.
+	 */
+	void indexEdges() {
+		if (indexed)
+			return;
+		indexed = true;
+		if (dirty == null || dirty.length < x.length)
+			dirty = new boolean[x.length];
+		if (pending == null || pending.length < size)
+			pending = new int[Math.max(16, size)];
+		for (int i = 0; i < size; i++)
+			markDirty(i);
+		if (size > SCAN_SIZE)
+			tableEdges();
+	}
+	
+	
+	private void tableEdges() {
+		if (spareEdges != null) {
+			edges = spareEdges;
+			spareEdges = null;
+		} else {
+			edges = new EdgeTable[4];
+			for (int side = TOP; side <= RIGHT; side++)
+				edges[side] = new EdgeTable();
+		}
+		for (int i = 0; i < size; i++)
+			putEdges(i);
+	}
+	
+	
+	/**
+	 * Finds a rectangle with the given edge.  Disjoint rectangles would 
+	 * have at most one, but float rounding in the splits can leave free 
+	 * rectangles that overlap, or slivers so thin that one of their edges 
+	 * lies on the line of the other.  So the rectangle asking is left out, 
+	 * and of several the lowest index is taken, with or without the table.
+	 * 
+	 * @param side {@link #TOP}, {@link #BOTTOM}, {@link #LEFT} or {@link #RIGHT}.
+	 * @param line the coordinate the edge lies on.
+	 * @param start where the edge starts along that line.
+	 * @param length the length of the edge.
+	 * @param except a rectangle not to return.
+	 * @return the index of the rectangle, or -1.
+	 */
+	int find(int side, float line, float start, float length, int except) {
+		if (edges != null) {
+			EdgeTable t = edges[side];
+			long k = EdgeTable.key(line, start);
+			int found = -1;
+			for (int s = t.first(k); s >= 0; s = t.next(k, s)) {
+				int i = t.value(s);
+				float l = side == TOP || side == BOTTOM ? width[i] : height[i];
+				if (i != except && l == length && (found < 0 || i < found))
+					found = i;
+			}
+			return found;
+		}
+		
+		for (int i = 0; i < size; i++) {
+			if (i == except)
+				continue;
+			boolean found;
+			switch (side) {
+				case TOP: 
+					found = y[i] == line && x[i] == start && width[i] == length;
+					break;
+				case BOTTOM: 
+					found = y[i] + height[i] == line && x[i] == start && width[i] == length;
+					break;
+				case LEFT: 
+					found = x[i] == line && y[i] == start && height[i] == length;
+					break;
+				default: 
+					found = x[i] + width[i] == line && y[i] == start && height[i] == length;
+			}
+			if (found)
+				return i;
+		}
+		return -1;
+	}
+	
+	
+	/**
+	 * @return a rectangle added or changed since it was last returned, or 
+	 *         -1 if there is none.
+	 */
+	int nextDirty() {
+		while (pendingCount > 0) {
+			// Entries can be left over from rectangles that have moved.
+			int i = pending[--pendingCount];
+			if (i < size && dirty[i]) {
+				dirty[i] = false;
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	
+	private void markDirty(int i) {
+		if (dirty[i])
+			return;
+		dirty[i] = true;
+		if (pendingCount == pending.length)
+			pending = Arrays.copyOf(pending, 2 * pendingCount);
+		pending[pendingCount++] = i;
+	}
+	
+	
+	private void putEdges(int i) {
+		edges[TOP].put(y[i], x[i], i);
+		edges[BOTTOM].put(y[i] + height[i], x[i], i);
+		edges[LEFT].put(x[i], y[i], i);
+		edges[RIGHT].put(x[i] + width[i], y[i], i);
+	}
+	
+	
+	private void removeEdges(int i) {
+		edges[TOP].remove(y[i], x[i], i);
+		edges[BOTTOM].remove(y[i] + height[i], x[i], i);
+		edges[LEFT].remove(x[i], y[i], i);
+		edges[RIGHT].remove(x[i] + width[i], y[i], i);
+	}
+	
+	
+	/**
+	 * The indices of the rectangles sorted by a key and then by a second 
+	 * key, in parallel arrays.  A rectangle goes in and out by binary 
+	 * search and one array copy.
+	 */
+	private static final class SizeOrder {
+		float[] key = new float[16];
+		float[] second = new float[16];
+		int[] index = new int[16];
+		int size = 0;
+		
+		/**
+		 * @return the first position whose keys are not below the given ones.
+		 */
+		int first(float k, float s) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (key[mid] < k || key[mid] == k && second[mid] < s)
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			return low;
+		}
+		
+		void put(float k, float s, int i) {
+			if (size == key.length) {
+				key = Arrays.copyOf(key, 2 * size);
+				second = Arrays.copyOf(second, 2 * size);
+				index = Arrays.copyOf(index, 2 * size);
+			}
+			int p = first(k, s);
+			System.arraycopy(key, p, key, p + 1, size - p);
+			System.arraycopy(second, p, second, p + 1, size - p);
+			System.arraycopy(index, p, index, p + 1, size - p);
+			key[p] = k;
+			second[p] = s;
+			index[p] = i;
+			size++;
+		}
+		
+		private int position(float k, float s, int i) {
+			for (int p = first(k, s); p < size && key[p] == k && second[p] == s; p++)
+				if (index[p] == i)
+					return p;
+			throw new IllegalStateException("Free rectangle " + i + " of keys " + k + ", " + s 
+					+ " is missing from the size order");
+		}
+		
+		void remove(float k, float s, int i) {
+			int p = position(k, s, i);
+			size--;
+			System.arraycopy(key, p + 1, key, p, size - p);
+			System.arraycopy(second, p + 1, second, p, size - p);
+			System.arraycopy(index, p + 1, index, p, size - p);
+		}
+		
+		/**
+		 * Points the entry of rectangle i, with the given keys, at j instead.
+		 */
+		void renumber(float k, float s, int i, int j) {
+			index[position(k, s, i)] = j;
+		}
+	}
+	
+	
+	/**
+	 * Maps the edges of one side, by the line they lie on and where they 
+	 * start along it, to the indices of their rectangles.  Disjoint 
+	 * rectangles never share such a key, but overlapping ones can, so an 
+	 * entry is the key and the index together and a key may have several. 
+	 * The two coordinates are packed into one long, and looked up by open 
+	 * addressing with linear probing; the entries of a key all sit in the 
+	 * run of slots from its home slot on.
+	 */
+	private static final class EdgeTable {
+		private long[] keys = new long[16];
+		private int[] value = new int[16];
+		private int count = 0;
+		
+		EdgeTable() {
+			Arrays.fill(value, -1);
+		}
+		
+		static long key(float line, float start) {
+			// Adding 0 turns -0 into 0, which is equal to it but packs apart.
+			return (long) Float.floatToIntBits(line + 0.0F) << 32 
+					| Float.floatToIntBits(start + 0.0F) & 0xFFFFFFFFL;
+		}
+		
+		private int home(long k) {
+			// Whole numbers leave the low bits of a float empty, so mix 
+			// the high bits down before taking the low ones.
+			long h = k * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ h >>> 32 ^ h >>> 48) & (value.length - 1);
+		}
+		
+		/**
+		 * @return the slot of the first entry of the key, or -1.
+		 */
+		int first(long k) {
+			return next(k, home(k) - 1);
+		}
+		
+		/**
+		 * @return the slot of the entry of the key after slot s, or -1.
+		 */
+		int next(long k, int s) {
+			int mask = value.length - 1;
+			for (int i = (s + 1) & mask; value[i] >= 0; i = (i + 1) & mask)
+				if (keys[i] == k)
+					return i;
+			return -1;
+		}
+		
+		int value(int s) {
+			return value[s];
+		}
+		
+		void put(float line, float start, int v) {
+			if (2 * (count + 1) > value.length)
+				grow();
+			insert(key(line, start), v);
+			count++;
+		}
+		
+		private void insert(long k, int v) {
+			int mask = value.length - 1;
+			int i = home(k);
+			while (value[i] >= 0)
+				i = (i + 1) & mask;
+			keys[i] = k;
+			value[i] = v;
+		}
+		
+		void remove(float line, float start, int v) {
+			int mask = value.length - 1;
+			long k = key(line, start);
+			int i = first(k);
+			while (i >= 0 && value[i] != v)
+				i = next(k, i);
+			if (i < 0)
+				return;
+			value[i] = -1;
+			count--;
+			
+			// Move later entries of the same run back into the gap, unless 
+			// they already sit between their home slot and the gap.
+			for (int j = (i + 1) & mask; value[j] >= 0; j = (j + 1) & mask) {
+				int home = home(keys[j]);
+				if (i <= j ? (i < home && home <= j) : (i < home || home <= j))
+					continue;
+				keys[i] = keys[j];
+				value[i] = value[j];
+				value[j] = -1;
+				i = j;
+			}
+		}
+		
+		void clear() {
+			Arrays.fill(value, -1);
+			count = 0;
+		}
+		
+		private void grow() {
+			long[] oldKeys = keys;
+			int[] oldValue = value;
+			keys = new long[2 * oldKeys.length];
+			value = new int[2 * oldKeys.length];
+			Arrays.fill(value, -1);
+			for (int j = 0; j < oldKeys.length; j++)
+				if (oldValue[j] >= 0)
+					insert(oldKeys[j], oldValue[j]);
+		}
+	}
+
+}
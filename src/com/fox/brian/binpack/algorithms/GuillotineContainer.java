@@ -5,7 +5,6 @@ import java.util.List;
 
 
 import com.fox.brian.binpack.Bin;
-import com.fox.brian.binpack.porthacks.outInt;
 import com.fox.brian.binpack.util.Helper;
 import com.fox.brian.binpack.util.Rect;
 
@@ -14,18 +13,35 @@ public class GuillotineContainer<T> extends Container<T> {
 	
 	
 	/**
-	 * Stores a list of all the rectangles that we have packed so far. This 
-	 * is used only to compute the Occupancy ratio, so if you want to have 
-	 * the packer consume less memory, this can be removed.
+	 * Stores a list of all the rectangles that we have packed so far.
 	 */
 	private ArrayList<Rect> usedRectangles;
 
 	
 	/**
-	 * Stores a list of rectangles that represents the free area of the bin. 
-	 * This rectangles in this list are disjoint.
+	 * Stores the rectangles that represent the free area of the bin. 
+	 * The rectangles in this store are disjoint.
 	 */
-	private ArrayList<Rect> freeRectangles;
+	private FreeRectStore freeRectangles;
+	
+	
+	/**
+	 * The size of the last placement FindPositionForNewNode chose; it lies 
+	 * at the corner of the free rectangle it returned.
+	 */
+	private float placedWidth, placedHeight;
+	
+	
+	private FitIndex fitIndex = FitIndex.LinearScan;
+	
+	
+	/**
+	 * The orders, offsets and positions of the walks a best fit search 
+	 * through the size index takes, kept to spare allocating them.
+	 */
+	private final int[] walkOrder = new int[4];
+	private final float[] walkOffset = new float[4];
+	private final int[] walkPosition = new int[4];
 	
 	
 //	@SuppressWarnings("unused")
@@ -36,8 +52,7 @@ public class GuillotineContainer<T> extends Container<T> {
 	
 	public GuillotineContainer() {
 		usedRectangles = new ArrayList<Rect>();
-		freeRectangles = new ArrayList<Rect>();
-		bins = new ArrayList<Bin<T>>();
+		freeRectangles = new FreeRectStore();
 //		disjointRects = new DisjointRectCollection();
 	}
 	
@@ -50,9 +65,14 @@ public class GuillotineContainer<T> extends Container<T> {
 			float minHeight) {
 		
 		this();
+		reset(maxWidth, maxHeight);
+	}
 		
-		binWidth = maxWidth;
-		binHeight = maxHeight;
+	
+	@Override
+	public void reset(float width, float height) {
+		binWidth = width;
+		binHeight = height;
 
 		// [NOT PORTED]
 		// #ifdef _DEBUG
@@ -63,11 +83,10 @@ public class GuillotineContainer<T> extends Container<T> {
 		usedRectangles.clear();
 
 		// We start with a single big free rectangle that spans the whole bin.
-		Rect n = new Rect(0,0, binWidth, binHeight);
-
 		freeRectangles.clear();
-		freeRectangles.add(n);
-		// TODO Auto-generated constructor stub
+		freeRectangles.add(0, 0, binWidth, binHeight);
+		clearPlacements();
+		setInputOrder(null);
 	}
 
 	/**
@@ -83,6 +102,39 @@ public class GuillotineContainer<T> extends Container<T> {
 		RectWorstShortSideFit,
 		RectWorstLongSideFit
 	}
+	
+	
+	/**
+	 * Specifies how the free rectangle a new rectangle goes into is found 
+	 * for the best fit heuristics.  Both find the same one, so the packing 
+	 * does not depend on the choice.  The worst fit heuristics always scan.
+	 */
+	public enum FitIndex
+	{
+		/* Scores every free rectangle. */
+		LinearScan,
+		
+		/* Looks up perfect fits by size, and walks the free rectangles in 
+		 * order of width, height or area from the smallest that can fit, 
+		 * stopping once no further one can score better.  Pays off once 
+		 * the free list runs into the hundreds. */
+		SizeOrdered
+	};
+	
+	
+	public FitIndex getFitIndex() {
+		return fitIndex;
+	}
+	
+	
+	/**
+	 * @param fitIndex how to find the free rectangle a new rectangle goes 
+	 *        into.  Defaults to {@link FitIndex#LinearScan}.
+	 */
+	public void setFitIndex(FitIndex fitIndex) {
+		this.fitIndex = fitIndex;
+		freeRectangles.indexSizes(fitIndex == FitIndex.SizeOrdered);
+	}
 
 	
 	/** Specifies the different choice heuristics that can be used when 
@@ -128,37 +180,154 @@ public class GuillotineContainer<T> extends Container<T> {
 			GuillotineSplitHeuristic splitMethod
 			) { 
 
-		// Find where to put the new rectangle.
-		outInt out = new outInt();
-		Rect newRect = FindPositionForNewNode(bin.getWidth(), bin.getHeight(), rectChoice, out);
-		int freeNodeIndex = out.val;
+		inserts++;
+		
+		Rect newRect = carve(bin.getWidth(), bin.getHeight(), merge, rectChoice, splitMethod);
 
 		// Abort if we didn't have enough space in the bin.
-		if (newRect.height() == 0) {
+		if (newRect == null) {
 			overflow = true;
-			return newRect;
+			return new Rect();
 		}
-			
-		// Remove the space that was just consumed by the new rectangle.
-		splitFreeRectByHeuristic(freeRectangles.get(freeNodeIndex), newRect, splitMethod);
-		// freeRectangles.erase(freeRectangles.begin() + freeNodeIndex);
-		freeRectangles.remove(freeNodeIndex);
-
-		// Perform a Rectangle Merge step if desired.
-		if (merge)
-			mergeFreeList();
 
 		// Remember the new used rectangle.
 		usedRectangles.add(newRect);
+		recordPlacement(newRect.x(), newRect.y(), newRect.width(), newRect.height());
 
 		// Check that we're really producing correct packings here.
 		// [NOT PORTED] debug_assert(disjointRects.add(newRect) == true);
 
-		Bin<T> newBin = new Bin<T>(bin, newRect.x(), newRect.y());
-		bins.add(newBin);
+		recordBin(bin, newRect.x(), newRect.y());
 		return newRect;
 	}
 
+	/**
+	 * Takes the area of a new rectangle out of the free rectangles, 
+	 * without remembering it as placed.  Containers that keep their 
+	 * wasted space in a guillotine container place into it this way.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param merge
+	 * @param rectChoice
+	 * @param splitMethod
+	 * @return where the rectangle went, or null if it fits nowhere.
+	 */
+	Rect carve(
+			float width, 
+			float height, 
+			boolean merge, 
+			FreeRectChoiceHeuristic rectChoice, 
+			GuillotineSplitHeuristic splitMethod
+			) {
+		
+		// Find where to put the new rectangle.
+		int freeNodeIndex = FindPositionForNewNode(width, height, rectChoice);
+		if (freeNodeIndex < 0)
+			return null;
+		Rect newRect = new Rect(
+				freeRectangles.x(freeNodeIndex), 
+				freeRectangles.y(freeNodeIndex), 
+				placedWidth, 
+				placedHeight);
+			
+		// Remove the space that was just consumed by the new rectangle.
+		splitFreeRectByHeuristic(freeNodeIndex, placedWidth, placedHeight, splitMethod);
+
+		// Perform a Rectangle Merge step if desired.
+		if (merge)
+			mergeFreeList();
+		return newRect;
+	}
+	
+	
+	/**
+	 * Adds an area to the free rectangles.  It must not overlap any of 
+	 * them, nor anything placed.
+	 */
+	void addFreeRectangle(float x, float y, float width, float height) {
+		freeRectangles.add(x, y, width, height);
+	}
+	
+	
+	/**
+	 * Forgets all free area, for a container that only hands it out 
+	 * through {@link #addFreeRectangle}.
+	 */
+	void clearFreeRectangles() {
+		freeRectangles.clear();
+	}
+	
+
+	/**
+	 * Removes a placed bin and returns its area to the free rectangles, 
+	 * merged with the free neighbours it shares a whole edge with, and 
+	 * theirs in turn.  Free space where no two rectangles line up that way 
+	 * stays fragmented until {@link #compact}.
+	 * 
+	 * @param bin the bin as it was handed to {@link #insert}.
+	 * @return false if the bin was not placed in this container.
+	 */
+	public boolean remove(Bin<T> bin) {
+		int i = indexOfBin(bin);
+		if (i < 0)
+			return false;
+		
+		Rect freed = placement(i);
+		for (int j = 0; j < usedRectangles.size(); j++) {
+			Rect u = usedRectangles.get(j);
+			if (u.x() == freed.x() && u.y() == freed.y()) {
+				usedRectangles.remove(j);
+				break;
+			}
+		}
+		forgetBin(i, usedRectangles);
+		
+		if (usedRectangles.isEmpty()) {
+			freeRectangles.clear();
+			freeRectangles.add(0, 0, binWidth, binHeight);
+			return true;
+		}
+		
+		// Merging joins the freed rectangle with its neighbours for as long 
+		// as they line up.
+		freeRectangles.add(freed.x(), freed.y(), freed.width(), freed.height());
+		mergeFreeList();
+		return true;
+	}
+
+	/**
+	 * Packs the placed bins again into an empty bin of the same size, 
+	 * largest first, to undo the fragmentation left by removals.  The bins 
+	 * keep being the handles for {@link #remove}, but may move.
+	 * 
+	 * @param merge
+	 * @param rectChoice
+	 * @param splitMethod
+	 * @return true if the bins were packed again, false if they did not 
+	 *         all fit that way and the container was left as it was.
+	 */
+	public boolean compact(
+			boolean merge, 
+			FreeRectChoiceHeuristic rectChoice, 
+			GuillotineSplitHeuristic splitMethod
+			) {
+		
+		List<Bin<T>> placed = placedSources();
+		int[] order = ItemOrder.AREA_DESC.sort(placed);
+		GuillotineContainer<T> c = new GuillotineContainer<T>(binWidth, binHeight, 0, 0);
+		c.setFitIndex(fitIndex);
+		for (int i : order) {
+			if (c.insert(placed.get(i), merge, rectChoice, splitMethod).height() == 0)
+				return false;
+		}
+		
+		usedRectangles = c.usedRectangles;
+		freeRectangles = c.freeRectangles;
+		takePlacements(c, order);
+		return true;
+	}
+
 	/// Inserts a list of rectangles into the bin.
 	/// @param rects The list of rectangles to add. This list will be destroyed in the packing process.
 	/// @param dst The output as a list of rectangles. Note that the indices will not correspond to the input indices.
@@ -300,39 +469,19 @@ public class GuillotineContainer<T> extends Container<T> {
 //		FreeRectChoiceHeuristic rectChoice, GuillotineSplitHeuristic splitMethod);
 
 	/**
-	 * Computes the ratio of used/total surface area. 0.00 means no space is 
-	 * yet used, 1.00 means the whole bin is used.
-	 * 
-	 * @return
-	 */
-	public float occupancy() {
-		// TODO float Occupancy() const;
-		///\todo The occupancy rate could be cached/tracked incrementally instead
-		///      of looping through the list of packed rectangles here.
-		long usedSurfaceArea = 0;
-		for(int i = 0; i < usedRectangles.size(); ++i)
-			usedSurfaceArea += usedRectangles.get(i).width() * usedRectangles.get(i).height();
-		return usedSurfaceArea / (binWidth * binHeight);
-	};
-
-	
-	/**
-	 * Returns the internal list of disjoint rectangles that track the free 
-	 * area of the bin. You may alter this vector any way desired, as long 
-	 * as the end result still is a list of disjoint rectangles.
+	 * Returns a copy of the disjoint rectangles that track the free area 
+	 * of the bin.  Altering the copy does not alter the bin.
 	 *
 	 * @return a list of disjoint rectangles
 	 */
 	ArrayList<Rect> getFreeRectangles() { 
-		return freeRectangles; 
+		return freeRectangles.toList(); 
 	}
 
 	
 	/**
-	 *  Returns the list of packed rectangles. You may alter this vector at 
-	 *  will, for example, you can move a Rect from this list to the Free 
-	 *  Rectangles list to free up space on-the-fly, but notice that this 
-	 *  causes fragmentation.
+	 *  Returns the list of packed rectangles.  To free up space on-the-fly, 
+	 *  use {@link #remove} rather than altering this list.
 	 *  @return list of packed rectangles
 	 */
 	List<Rect> getUsedRectangles() { 
@@ -342,103 +491,42 @@ public class GuillotineContainer<T> extends Container<T> {
 	/** 
 	 * Performs a Rectangle Merge operation. This procedure looks for 
 	 * adjacent free rectangles and merges them if they can be represented 
-	 * with a single rectangle. Takes up Theta(|freeRectangles|^2) time.
+	 * with a single rectangle.  The partners a rectangle can merge with are 
+	 * looked up by their edges, and a merged rectangle is looked at again, 
+	 * so three or more rectangles in a row end up as one.  Only rectangles 
+	 * added or changed since the last merge are looked at, so a merge after 
+	 * an insert costs a few lookups rather than Theta(|freeRectangles|^2).
 	 */
 	void mergeFreeList() {
-		/* 
-		[NOT PORTED]
-		#ifdef _DEBUG
-		DisjointRectCollection test;
-		for(size_t i = 0; i < freeRectangles.size(); ++i)
-			assert(test.Add(freeRectangles.get(i)) == true);
-		#endif
-		*/
-
-		// Do a Theta(n^2) loop to see if any pair of free rectangles could 
-		// me merged into one.  Note that we miss any opportunities to merge 
-		// three rectangles into one. (should call this function again to 
-		// detect that)
-		for(int i = 0; i < freeRectangles.size(); ++i)
-			for(int j = i+1; j < freeRectangles.size(); ++j)
-			{
-				if (freeRectangles.get(i).width() == freeRectangles.get(j).width() 
-						&& freeRectangles.get(i).x() == freeRectangles.get(j).x())
-				{
-					if (freeRectangles.get(i).y() == 
-							freeRectangles.get(j).y() + freeRectangles.get(j).height())
-					{
-						Rect oldie = freeRectangles.get(i);
-						Rect newbie = new Rect (
-								oldie.x(), 
-								oldie.y() - freeRectangles.get(j).height(), 
-								oldie.width(), 
-								oldie.height() + freeRectangles.get(j).height()
-						);
-							
-						
-						freeRectangles.set(i, newbie);
-						freeRectangles.remove(j);
-						--j;
-					}
-					else if (freeRectangles.get(i).y() + freeRectangles.get(i).height() 
-							== freeRectangles.get(j).y())
-					{
-						Rect oldie = freeRectangles.get(i);
-						Rect newbie = new Rect (
-								oldie.x(), 
-								oldie.y(), 
-								oldie.width(), 
-								oldie.height() + freeRectangles.get(j).height()
-						);
-						freeRectangles.set(i, newbie);
-						freeRectangles.remove(j);
-						--j;
-					}
-				}
-				else if (freeRectangles.get(i).height() == freeRectangles.get(j).height() 
-						&& freeRectangles.get(i).y() == freeRectangles.get(j).y())
-				{
-					if (freeRectangles.get(i).x() == 
-							freeRectangles.get(j).x() + freeRectangles.get(j).width())
-					{
-						Rect oldie = freeRectangles.get(i);
-						Rect newbie = new Rect (
-								oldie.x() - freeRectangles.get(j).width(), 
-								oldie.y(), 
-								oldie.width() + freeRectangles.get(j).width(), 
-								oldie.height()
-						);
-						freeRectangles.set(i, newbie);
-						freeRectangles.remove(j);
-						--j;
-					}
-					else if (freeRectangles.get(i).x() + freeRectangles.get(i).width() 
-							== freeRectangles.get(j).x())
-					{
-						Rect oldie = freeRectangles.get(i);
-						Rect newbie = new Rect (
-								oldie.x(), 
-								oldie.y(), 
-								oldie.width() + freeRectangles.get(j).width(), 
-								oldie.height()
-						);
-						freeRectangles.set(i, newbie);
-						freeRectangles.remove(j);
-						--j;
-					}
-				}
+		FreeRectStore f = freeRectangles;
+		f.indexEdges();
+		for (int i = f.nextDirty(); i >= 0; i = f.nextDirty()) {
+			float x = f.x(i), y = f.y(i), w = f.width(i), h = f.height(i);
+			
+			// The partner above, below, to the left or to the right, and 
+			// the rectangle covering both.
+			int j;
+			if ((j = f.find(FreeRectStore.BOTTOM, y, x, w, i)) >= 0) {
+				h += f.height(j);
+				y = f.y(j);
 			}
-		/* 
-		[NOT PORTED]
-
-		#ifdef _DEBUG
-			test.Clear();
-			for(size_t i = 0; i < freeRectangles.size(); ++i)
-				assert(test.Add(freeRectangles.get(i)) == true);
-		#endif
-		*/
-		
-		
+			else if ((j = f.find(FreeRectStore.TOP, y + h, x, w, i)) >= 0)
+				h += f.height(j);
+			else if ((j = f.find(FreeRectStore.RIGHT, x, y, h, i)) >= 0) {
+				w += f.width(j);
+				x = f.x(j);
+			}
+			else if ((j = f.find(FreeRectStore.LEFT, x + w, y, h, i)) >= 0)
+				w += f.width(j);
+			else
+				continue;
+			
+			f.remove(j);
+			// The last rectangle took the place of the partner.
+			if (i == f.size())
+				i = j;
+			f.set(i, x, y, w, h);
+		}
 	}
 
 
@@ -453,112 +541,196 @@ public class GuillotineContainer<T> extends Container<T> {
 
 	/** 
 	 * Goes through the list of free rectangles and finds the best one to place 
-	 * a rectangle of given size into.  Running time is Theta(|freeRectangles|).
+	 * a rectangle of given size into.  Running time is Theta(|freeRectangles|) 
+	 * unless the size index answers, and the search allocates nothing: the 
+	 * size of the chosen placement, which is swapped if the rectangle was 
+	 * rotated, is left in placedWidth and placedHeight.
 	 * @param width
 	 * @param height
 	 * @param rectChoice
-	 * @param nodeIndex [out] the index of the free rectangle in the 
-	 *        freeRectangles array into which the new rect was placed.
-	 * @return a Rect structure that represents the placement of the new rect 
-	 *         into the best free rectangle.
+	 * @return the index of the free rectangle into which the new rect is 
+	 *         placed, at its top left corner, or -1 if it fits nowhere.
 	 */
 	// 	Rect FindPositionForNewNode(int width, int height, FreeRectChoiceHeuristic rectChoice, int *nodeIndex) {}
-	Rect FindPositionForNewNode(float width, float height, FreeRectChoiceHeuristic rectChoice, outInt nodeIndex) { 
-		Rect bestNode = new Rect();
+	int FindPositionForNewNode(float width, float height, FreeRectChoiceHeuristic rectChoice) { 
+		if (freeRectangles.sizesIndexed())
+			switch (rectChoice) {
+				case RectBestAreaFit: 
+				case RectBestShortSideFit: 
+				case RectBestLongSideFit: 
+					return FindBestFitBySize(width, height, rectChoice);
+				default: 
+					break;
+			}
 		
-		// [NOT PORTED] memset(&bestNode, 0, sizeof(Rect));
-
+		FreeRectStore f = freeRectangles;
+		int bestIndex = -1;
 		float bestScore = Float.POSITIVE_INFINITY;
 
 		/// Try each free rectangle to find the best one for placement.
-		for(int i = 0; i < freeRectangles.size(); ++i)
+		for(int i = 0; i < f.size(); ++i)
 		{
+			float freeWidth = f.width(i);
+			float freeHeight = f.height(i);
+			
 			// If this is a perfect fit upright, choose it immediately.
-			if (width == freeRectangles.get(i).width() && height == freeRectangles.get(i).height())
+			if (width == freeWidth && height == freeHeight)
 			{
-				bestNode = new Rect(
-						freeRectangles.get(i).x(),
-						freeRectangles.get(i).y(),
-						width,
-						height
-					);
-				bestScore = Float.NEGATIVE_INFINITY;
-				nodeIndex.val = i;
-				// [NOT PORTED] debug_assert(disjointRects.disjoint(bestNode));
-				break;
+				placedWidth = width;
+				placedHeight = height;
+				return i;
 			}
 			// If this is a perfect fit sideways, choose it.
-			else if (allowRotation && height == freeRectangles.get(i).width() && width == freeRectangles.get(i).height())
+			else if (allowRotation && height == freeWidth && width == freeHeight)
 			{
-				bestNode = new Rect(
-						freeRectangles.get(i).x(),
-						freeRectangles.get(i).y(),
-						height,
-						width
-					);
-
-				bestScore = Float.NEGATIVE_INFINITY;
-				nodeIndex.val = i;
-				// [NOT PORTED] debug_assert(disjointRects.disjoint(bestNode));
-				break;
+				placedWidth = height;
+				placedHeight = width;
+				return i;
 			}
 			// Does the rectangle fit upright?
-			else if (width <= freeRectangles.get(i).width() && height <= freeRectangles.get(i).height())
+			else if (width <= freeWidth && height <= freeHeight)
 			{
-				float score = ScoreByHeuristic(width, height, freeRectangles.get(i), rectChoice);
+				float score = ScoreByHeuristic(width, height, freeWidth, freeHeight, rectChoice);
 
 				if (score < bestScore)
 				{
-					bestNode = new Rect(
-							freeRectangles.get(i).x(),
-							freeRectangles.get(i).y(),
-							width,
-							height
-						);
+					placedWidth = width;
+					placedHeight = height;
 					bestScore = score;
-					nodeIndex.val = i;
-					// [NOT PORTED] debug_assert(disjointRects.disjoint(bestNode));
+					bestIndex = i;
 				}
 			}
 			// Does the rectangle fit sideways?
-			else if (allowRotation && height <= freeRectangles.get(i).width() && width <= freeRectangles.get(i).height())
+			else if (allowRotation && height <= freeWidth && width <= freeHeight)
 			{
-				float score = ScoreByHeuristic(height, width, freeRectangles.get(i), rectChoice);
+				float score = ScoreByHeuristic(height, width, freeWidth, freeHeight, rectChoice);
 
 				if (score < bestScore)
 				{
-					bestNode = new Rect(
-						freeRectangles.get(i).x(),
-						freeRectangles.get(i).y(),
-						height,
-						width
-					);
+					placedWidth = height;
+					placedHeight = width;
 					bestScore = score;
-					nodeIndex.val = i;
-					// [NOT PORTED] debug_assert(disjointRects.disjoint(bestNode));
+					bestIndex = i;
 				}
 			}
 		}
-		return bestNode;
+		return bestIndex;
 	
 	}
+	
+	/**
+	 * Finds the same free rectangle as the scan in FindPositionForNewNode, 
+	 * for a best fit heuristic, through the size index.  A perfect fit is 
+	 * looked up by its size.  Otherwise every free rectangle the new one 
+	 * fits in is reached by a walk up one of the size orders, from the 
+	 * smallest key that can fit, and its key less that of the new rectangle 
+	 * is a lower bound of its score; for the short side rule it is the 
+	 * score itself when it is the smaller of the two.  The walks advance 
+	 * together, lowest bound first, and stop once the lowest bound is 
+	 * worse than the best score found.  Ties go to the lowest index, as 
+	 * they do in the scan.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param rectChoice one of the best fit heuristics.
+	 * @return the index of the free rectangle, or -1 if it fits nowhere.
+	 */
+	private int FindBestFitBySize(float width, float height, FreeRectChoiceHeuristic rectChoice) {
+		FreeRectStore f = freeRectangles;
+		
+		// The scan takes the first perfect fit, upright before sideways.
+		int upright = f.findSize(width, height);
+		int sideways = allowRotation ? f.findSize(height, width) : -1;
+		if (upright >= 0 && (sideways < 0 || upright <= sideways)) {
+			placedWidth = width;
+			placedHeight = height;
+			return upright;
+		}
+		if (sideways >= 0) {
+			placedWidth = height;
+			placedHeight = width;
+			return sideways;
+		}
+		
+		int walks = 0;
+		if (rectChoice == FreeRectChoiceHeuristic.RectBestAreaFit) {
+			// Turning the rectangle does not change its area.
+			walkOrder[walks] = FreeRectStore.BY_AREA;
+			walkOffset[walks++] = width * height;
+		}
+		else {
+			walkOrder[walks] = FreeRectStore.BY_WIDTH;
+			walkOffset[walks++] = width;
+			walkOrder[walks] = FreeRectStore.BY_HEIGHT;
+			walkOffset[walks++] = height;
+			if (allowRotation) {
+				walkOrder[walks] = FreeRectStore.BY_WIDTH;
+				walkOffset[walks++] = height;
+				walkOrder[walks] = FreeRectStore.BY_HEIGHT;
+				walkOffset[walks++] = width;
+			}
+		}
+		for (int w = 0; w < walks; w++)
+			walkPosition[w] = f.firstAtLeast(walkOrder[w], walkOffset[w]);
+		
+		int bestIndex = -1;
+		float bestScore = Float.POSITIVE_INFINITY;
+		while (true) {
+			int next = -1;
+			float bound = Float.POSITIVE_INFINITY;
+			for (int w = 0; w < walks; w++) {
+				float b = f.orderKey(walkOrder[w], walkPosition[w]) - walkOffset[w];
+				if (b < bound) {
+					bound = b;
+					next = w;
+				}
+			}
+			if (next < 0 || bound > bestScore)
+				break;
+			int i = f.ordered(walkOrder[next], walkPosition[next]++);
+			
+			// Score it the way the scan does, upright if it fits that way.
+			float freeWidth = f.width(i);
+			float freeHeight = f.height(i);
+			float score;
+			boolean turned;
+			if (width <= freeWidth && height <= freeHeight) {
+				score = ScoreByHeuristic(width, height, freeWidth, freeHeight, rectChoice);
+				turned = false;
+			}
+			else if (allowRotation && height <= freeWidth && width <= freeHeight) {
+				score = ScoreByHeuristic(height, width, freeWidth, freeHeight, rectChoice);
+				turned = true;
+			}
+			else
+				continue;
+			
+			if (score < bestScore || score == bestScore && i < bestIndex) {
+				placedWidth = turned ? height : width;
+				placedHeight = turned ? width : height;
+				bestScore = score;
+				bestIndex = i;
+			}
+		}
+		return bestIndex;
+	}
 
 	// static int ScoreByHeuristic(int width, int height, const Rect &freeRect, FreeRectChoiceHeuristic rectChoice);
-	static float ScoreByHeuristic(float width, float height, Rect freeRect, FreeRectChoiceHeuristic rectChoice) { 
+	static float ScoreByHeuristic(float width, float height, float freeWidth, float freeHeight, FreeRectChoiceHeuristic rectChoice) { 
 		switch(rectChoice)
 		{
 			case RectBestAreaFit: 
-				return ScoreBestAreaFit(width, height, freeRect);
+				return ScoreBestAreaFit(width, height, freeWidth, freeHeight);
 			case RectBestShortSideFit: 
-				return ScoreBestShortSideFit(width, height, freeRect);
+				return ScoreBestShortSideFit(width, height, freeWidth, freeHeight);
 			case RectBestLongSideFit: 
-				return ScoreBestLongSideFit(width, height, freeRect);
+				return ScoreBestLongSideFit(width, height, freeWidth, freeHeight);
 			case RectWorstAreaFit: 
-				return ScoreWorstAreaFit(width, height, freeRect);
+				return ScoreWorstAreaFit(width, height, freeWidth, freeHeight);
 			case RectWorstShortSideFit: 
-				return ScoreWorstShortSideFit(width, height, freeRect);
+				return ScoreWorstShortSideFit(width, height, freeWidth, freeHeight);
 			case RectWorstLongSideFit: 
-				return ScoreWorstLongSideFit(width, height, freeRect);
+				return ScoreWorstLongSideFit(width, height, freeWidth, freeHeight);
 			default: 
 				assert(false); 
 				return Float.POSITIVE_INFINITY;
@@ -567,53 +739,61 @@ public class GuillotineContainer<T> extends Container<T> {
 	
 	/* 
 	 * The following functions compute (penalty) score values if a rect of 
-	 * the given size was placed into the given free rectangle. In these 
-	 * score values, smaller is better.
+	 * the given size was placed into a free rectangle of the given size. 
+	 * In these score values, smaller is better.
 	 */
-	static float ScoreBestAreaFit(float width, float height, Rect freeRect) {
-		return freeRect.width() * freeRect.height() - width * height;
+	static float ScoreBestAreaFit(float width, float height, float freeWidth, float freeHeight) {
+		return freeWidth * freeHeight - width * height;
 	}
 	
-	static float ScoreBestShortSideFit(float width, float height, Rect freeRect) {
-		float leftoverHoriz = Helper.abs(freeRect.width() - width);
-		float leftoverVert = Helper.abs(freeRect.height() - height);
+	static float ScoreBestShortSideFit(float width, float height, float freeWidth, float freeHeight) {
+		float leftoverHoriz = Helper.abs(freeWidth - width);
+		float leftoverVert = Helper.abs(freeHeight - height);
 		float leftover = Helper.min(leftoverHoriz, leftoverVert);
 		return leftover;
 	}
 	
-	static float ScoreBestLongSideFit(float width, float height, Rect freeRect) {
-		float leftoverHoriz = Helper.abs(freeRect.width() - width);
-		float leftoverVert = Helper.abs(freeRect.height() - height);
+	static float ScoreBestLongSideFit(float width, float height, float freeWidth, float freeHeight) {
+		float leftoverHoriz = Helper.abs(freeWidth - width);
+		float leftoverVert = Helper.abs(freeHeight - height);
 		float leftover = Helper.max(leftoverHoriz, leftoverVert);
 		return leftover;
 	}
 
-	static float ScoreWorstAreaFit(float width, float height, Rect freeRect) {
-		return -ScoreBestAreaFit(width, height, freeRect);
+	static float ScoreWorstAreaFit(float width, float height, float freeWidth, float freeHeight) {
+		return -ScoreBestAreaFit(width, height, freeWidth, freeHeight);
 	}
 	
-	static float ScoreWorstShortSideFit(float width, float height, Rect freeRect) {
-		return -ScoreBestShortSideFit(width, height, freeRect);
+	static float ScoreWorstShortSideFit(float width, float height, float freeWidth, float freeHeight) {
+		return -ScoreBestShortSideFit(width, height, freeWidth, freeHeight);
 	}
 	
-	static float ScoreWorstLongSideFit(float width, float height, Rect freeRect) {
-		return -ScoreBestLongSideFit(width, height, freeRect);
+	static float ScoreWorstLongSideFit(float width, float height, float freeWidth, float freeHeight) {
+		return -ScoreBestLongSideFit(width, height, freeWidth, freeHeight);
 	}
 
 	/**
-	 * Splits the given L-shaped free rectangle into two new free rectangles 
-	 * after placedRect has been placed into it.  Determines the split axis 
-	 * by using the given heuristic.
+	 * Replaces the given free rectangle by the two new free rectangles left 
+	 * of its L-shape after a rectangle of the given size has been placed 
+	 * into its corner.  Determines the split axis by using the given 
+	 * heuristic.
 	 * 
-	 * @param freeRect
-	 * @param placedRect
+	 * @param freeIndex
+	 * @param placedWidth
+	 * @param placedHeight
 	 * @param method
 	 */
 	// void SplitFreeRectByHeuristic(const Rect &freeRect, const Rect &placedRect, GuillotineSplitHeuristic method);
-	void splitFreeRectByHeuristic(Rect freeRect, Rect placedRect, GuillotineSplitHeuristic method) {
+	void splitFreeRectByHeuristic(int freeIndex, float placedWidth, float placedHeight, GuillotineSplitHeuristic method) {
+		float freeX = freeRectangles.x(freeIndex);
+		float freeY = freeRectangles.y(freeIndex);
+		float freeWidth = freeRectangles.width(freeIndex);
+		float freeHeight = freeRectangles.height(freeIndex);
+		freeRectangles.remove(freeIndex);
+		
 		// Compute the lengths of the leftover area.
-		float w = freeRect.width() - placedRect.width();
-		float h = freeRect.height() - placedRect.height();
+		float w = freeWidth - placedWidth;
+		float h = freeHeight - placedHeight;
 
 		// Placing placedRect into freeRect results in an L-shaped free area, which must be split into
 		// two disjoint rectangles. This can be achieved with by splitting the L-shape using a single line.
@@ -635,20 +815,20 @@ public class GuillotineContainer<T> extends Container<T> {
 			case SplitMinimizeArea:
 				// Maximize the larger area == minimize the smaller area.
 				// Tries to make the single bigger rectangle.
-				splitHorizontal = (placedRect.width() * h > w * placedRect.height());
+				splitHorizontal = (placedWidth * h > w * placedHeight);
 				break;
 			case SplitMaximizeArea:
 				// Maximize the smaller area == minimize the larger area.
 				// Tries to make the rectangles more even-sized.
-				splitHorizontal = (placedRect.width() * h <= w * placedRect.height());
+				splitHorizontal = (placedWidth * h <= w * placedHeight);
 				break;
 			case SplitShorterAxis:
 				// Split along the shorter total axis.
-				splitHorizontal = (freeRect.width() <= freeRect.height());
+				splitHorizontal = (freeWidth <= freeHeight);
 				break;
 			case SplitLongerAxis:
 				// Split along the longer total axis.
-				splitHorizontal = (freeRect.width() > freeRect.height());
+				splitHorizontal = (freeWidth > freeHeight);
 				break;
 			default:
 				splitHorizontal = true;
@@ -656,7 +836,7 @@ public class GuillotineContainer<T> extends Container<T> {
 		}
 
 		// Perform the actual split.
-		splitFreeRectAlongAxis(freeRect, placedRect, splitHorizontal);
+		splitFreeRectAlongAxis(freeX, freeY, freeWidth, freeHeight, placedWidth, placedHeight, splitHorizontal);
 		
 		
 		
@@ -666,42 +846,50 @@ public class GuillotineContainer<T> extends Container<T> {
 	 * Splits the given L-shaped free rectangle into two new free rectangles 
 	 * along the given fixed split axis.
 	 * 
-	 * @param freeRect
-	 * @param placedRect
+	 * @param freeX
+	 * @param freeY
+	 * @param freeWidth
+	 * @param freeHeight
+	 * @param placedWidth
+	 * @param placedHeight
 	 * @param splitHorizontal
 	 */
 	// void splitFreeRectAlongAxis(const Rect &freeRect, const Rect &placedRect, bool splitHorizontal);
-	void splitFreeRectAlongAxis(Rect freeRect, Rect placedRect, boolean splitHorizontal) {
+	void splitFreeRectAlongAxis(
+			float freeX, 
+			float freeY, 
+			float freeWidth, 
+			float freeHeight, 
+			float placedWidth, 
+			float placedHeight, 
+			boolean splitHorizontal) {
 		// Form the two new rectangles.
-		float bottom_x = freeRect.x();
-		float bottom_y = freeRect.y() + placedRect.height();
-		float bottom_height = freeRect.height() - placedRect.height();
+		float bottom_x = freeX;
+		float bottom_y = freeY + placedHeight;
+		float bottom_height = freeHeight - placedHeight;
 		float bottom_width = 0;
 		
-		float right_x = freeRect.x() + placedRect.width();
-		float right_y = freeRect.y();
-		float right_width = freeRect.width() - placedRect.width();
+		float right_x = freeX + placedWidth;
+		float right_y = freeY;
+		float right_width = freeWidth - placedWidth;
 		float right_height = 0;
 		
 		if (splitHorizontal)
 		{
-			bottom_width = freeRect.width();
-			right_height = placedRect.height();
+			bottom_width = freeWidth;
+			right_height = placedHeight;
 		}
 		else // Split vertically
 		{
-			bottom_width = placedRect.width();
-			right_height = freeRect.height();
+			bottom_width = placedWidth;
+			right_height = freeHeight;
 		}
 
-		Rect bottom = new Rect(bottom_x, bottom_y, bottom_width, bottom_height);
-		Rect right = new Rect(right_x, right_y, right_width, right_height);
-
 		// Add the new rectangles into the free rectangle pool if they weren't degenerate.
-		if (bottom.width() > 0 && bottom.height() > 0)
-			freeRectangles.add(bottom);
-		if (right.width() > 0 && right.height() > 0)
-			freeRectangles.add(right);
+		if (bottom_width > 0 && bottom_height > 0)
+			freeRectangles.add(bottom_x, bottom_y, bottom_width, bottom_height);
+		if (right_width > 0 && right_height > 0)
+			freeRectangles.add(right_x, right_y, right_width, right_height);
 
 		// [NOT PORTED]debug_assert(disjointRects.disjoint(bottom));
 		// [NOT PORTED ]debug_assert(disjointRects.disjoint(right));
@@ -0,0 +1,64 @@
+package com.fox.brian.binpack.algorithms;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.fox.brian.binpack.Bin;
+
+/**
+ * Specifies the order in which the bins are handed to a container.  All 
+ * orders but ORIGINAL sort by a key, largest first; ties keep the order 
+ * in which the bins were added.
+ */
+public enum ItemOrder {
+	
+	/** The order in which the bins were added. */
+	ORIGINAL {
+		float key(Bin<?> b) { return 0; }
+	},
+	
+	AREA_DESC {
+		float key(Bin<?> b) { return b.getWidth() * b.getHeight(); }
+	},
+	
+	MAX_SIDE_DESC {
+		float key(Bin<?> b) { return Math.max(b.getWidth(), b.getHeight()); }
+	},
+	
+	PERIMETER_DESC {
+		float key(Bin<?> b) { return b.getWidth() + b.getHeight(); }
+	},
+	
+	HEIGHT_DESC {
+		float key(Bin<?> b) { return b.getHeight(); }
+	};
+	
+	
+	abstract float key(Bin<?> b);
+	
+	
+	/**
+	 * @param bins
+	 * @return the indices of the bins in this order.
+	 */
+	public int[] sort(final List<? extends Bin<?>> bins) {
+		Integer[] order = new Integer[bins.size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		if (this != ORIGINAL) {
+			// Arrays.sort is stable for objects.
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					return Float.compare(key(bins.get(b)), key(bins.get(a)));
+				}
+			});
+		}
+		int[] result = new int[order.length];
+		for (int i = 0; i < order.length; i++)
+			result[i] = order[i];
+		return result;
+	}
+
+}
@@ -3,17 +3,33 @@ package com.fox.brian.binpack.algorithms;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.fox.brian.binpack.porthacks.outFloat;
+import com.fox.brian.binpack.Bin;
 import com.fox.brian.binpack.util.Helper;
 import com.fox.brian.binpack.util.Rect;
 
 public class MaxRectsContainer<T> extends Container<T> {
 	
-	private	float binWidth;
-	private	float binHeight;
-
 	private List<Rect> usedRectangles;
 	private List<Rect> freeRectangles;
+	
+	private SplitIndex splitIndex = SplitIndex.LinearScan;
+	private FreeRectGrid grid;
+	private final List<Rect> overlapping = new ArrayList<Rect>();
+	private boolean[] redundant = new boolean[16];
+	
+	/**
+	 * The edges of the used rectangles, built the first time the contact 
+	 * point rule needs them and dropped when used rectangles go.
+	 */
+	private EdgeIndex edges;
+	
+	/**
+	 * The placement the last FindPositionForNewNode call chose, at the 
+	 * corner of the free rectangle it returned, and its scores.  Leaving 
+	 * them here spares allocating a Rect and two holders per candidate.
+	 */
+	private float placedWidth, placedHeight;
+	private float score1, score2;
 
 
 
@@ -49,6 +65,61 @@ public class MaxRectsContainer<T> extends Container<T> {
 		usedRectangles.clear();
 		freeRectangles.clear();
 		freeRectangles.add(n);		
+		indexFreeRectangles();
+		edges = null;
+		clearPlacements();
+	}
+	
+	
+	@Override
+	public void reset(float width, float height) {
+		init(width, height);
+		setInputOrder(null);
+	}
+
+	
+	/**
+	 * Specifies how the free rectangles that a newly placed rectangle 
+	 * overlaps are found.  Both find the same ones, in the same order, so 
+	 * the packing does not depend on the choice.
+	 */
+	public enum SplitIndex
+	{
+		/* Tests every free rectangle. */
+		LinearScan,
+		
+		/* Looks them up in a uniform grid over the bin, which pays off 
+		 * once the free list runs into the hundreds. */
+		UniformGrid
+	};
+	
+	
+	public SplitIndex getSplitIndex() {
+		return splitIndex;
+	}
+	
+	
+	/**
+	 * @param splitIndex how to find the free rectangles a placed 
+	 *        rectangle splits.  Defaults to {@link SplitIndex#LinearScan}.
+	 */
+	public void setSplitIndex(SplitIndex splitIndex) {
+		this.splitIndex = splitIndex;
+		indexFreeRectangles();
+	}
+	
+	
+	private void indexFreeRectangles() {
+		if (splitIndex != SplitIndex.UniformGrid) {
+			grid = null;
+			return;
+		}
+		if (grid == null)
+			grid = new FreeRectGrid(binWidth, binHeight);
+		else
+			grid.reset(binWidth, binHeight);
+		for (Rect r : freeRectangles)
+			grid.add(r);
 	}
 
 	
@@ -82,45 +153,297 @@ public class MaxRectsContainer<T> extends Container<T> {
 	
 	/**
 	 * Inserts the given list of rectangles in an offline/batch mode, 
-	 * possibly rotated.
+	 * possibly rotated.  Each round places whichever rectangle scores best 
+	 * at its best place, see {@link #insert(List, FreeRectChoiceHeuristic)}.
      *
 	 * @param rects The list of rectangles to insert. This vector will be destroyed in the process.
+	 *        The rectangles that did not fit are left in it.
 	 * @param dst [out] This list will contain the packed rectangles. The indices will not correspond to that of rects.
 	 * @param method The rectangle placement rule to use when packing.
 	 *
 	 */
 	void Insert(List<Rect> rects, List<Rect> dst, FreeRectChoiceHeuristic method) {
 		dst.clear();
-
-		while(rects.size() > 0)
+		
+		int count = rects.size();
+		float[] widths = new float[count];
+		float[] heights = new float[count];
+		for (int i = 0; i < count; i++) {
+			widths[i] = rects.get(i).width();
+			heights[i] = rects.get(i).height();
+		}
+		
+		Rect[] placed = new Rect[count];
+		int[] order = new int[count];
+		int placedCount = InsertBestFirst(widths, heights, method, placed, order);
+		
+		for (int k = 0; k < placedCount; k++)
+			dst.add(placed[order[k]]);
+		int left = 0;
+		for (int i = 0; i < count; i++)
+			if (placed[i] == null)
+				rects.set(left++, rects.get(i));
+		rects.subList(left, count).clear();
+	}
+	
+	
+	/**
+	 * Inserts the given bins in an offline/batch mode, possibly turned, 
+	 * and remembers them for {@link #getBins()}.  Each round places 
+	 * whichever bin scores best at its best place, which usually packs 
+	 * tighter than inserting the bins one by one, in any order. 
+	 * <p> 
+	 * Every bin keeps its best few places between rounds, and only scores 
+	 * the free rectangles the last placement added, so a round costs about 
+	 * a pass over the bins rather than a pass over every free rectangle 
+	 * per bin.  The contact point rule scores against the placed 
+	 * rectangles as well, so with it every bin is scored in full each 
+	 * round.
+	 * 
+	 * @param bins
+	 * @param method
+	 * @return the number of bins placed.  The others did not fit.
+	 */
+	public int insert(List<Bin<T>> bins, FreeRectChoiceHeuristic method) {
+		int count = bins.size();
+		float[] widths = new float[count];
+		float[] heights = new float[count];
+		for (int i = 0; i < count; i++) {
+			widths[i] = bins.get(i).getWidth();
+			heights[i] = bins.get(i).getHeight();
+		}
+		
+		Rect[] placed = new Rect[count];
+		int[] order = new int[count];
+		int placedCount = InsertBestFirst(widths, heights, method, placed, order);
+		
+		// Number the placements by their place in the list, as if the bins
+		// had been inserted one by one in that order.
+		int first = inserts;
+		for (int k = 0; k < placedCount; k++) {
+			int i = order[k];
+			inserts = first + i + 1;
+			recordBin(bins.get(i), placed[i].x(), placed[i].y(), placed[i].width() != widths[i]);
+		}
+		inserts = first + count;
+		if (placedCount < count)
+			overflow = true;
+		return placedCount;
+	}
+	
+	
+	/**
+	 * Places the given rectangles best first, as long as any of them fits.
+	 * 
+	 * @param widths
+	 * @param heights
+	 * @param method
+	 * @param placed [out] where each rectangle went, or null if it did not 
+	 *        fit.
+	 * @param order [out] the indices of the placed rectangles, in the 
+	 *        order they were placed.
+	 * @return the number of rectangles placed.
+	 */
+	private int InsertBestFirst(float[] widths, float[] heights, FreeRectChoiceHeuristic method, Rect[] placed, int[] order) {
+		int count = widths.length;
+		Candidates candidates = method == FreeRectChoiceHeuristic.RectContactPointRule ? null : new Candidates(count);
+		
+		// The rectangles still to place, in the order given.  A rectangle 
+		// that fits nowhere never will, as the free space only shrinks.
+		int[] waiting = new int[count];
+		int waitingCount = count;
+		float[] bestScore1 = new float[count];
+		float[] bestScore2 = new float[count];
+		Rect[] bestFree = new Rect[count];
+		float[] bestWidth = new float[count];
+		float[] bestHeight = new float[count];
+		for (int i = 0; i < count; i++)
+			waiting[i] = i;
+		int firstNew = 0;
+		
+		int placedCount = 0;
+		while (true)
 		{
-			float bestScore1 = Float.MAX_VALUE;
-			float bestScore2 = Float.MAX_VALUE;
-			float bestRectIndex = -1;
-			Rect bestNode = new Rect();
-
-			for(int i = 0; i < rects.size(); ++i)
-			{
-				outFloat score1 = new outFloat();
-				outFloat score2 = new outFloat();
-				Rect newNode = ScoreRect(rects.get(i).width(), rects.get(i).height(), method, score1, score2);
-
-				if (score1.val < bestScore1 || (score1.val == bestScore1 && score2.val < bestScore2))
-				{
-					bestScore1 = score1.val;
-					bestScore2 = score2.val;
-					bestNode = newNode;
-					bestRectIndex = i;
+			// Bring the best places up to date with the free list, and drop 
+			// the rectangles that no longer fit.
+			int left = 0;
+			for (int k = 0; k < waitingCount; k++) {
+				int i = waiting[k];
+				if (candidates == null) {
+					int freeIndex = ScoreRect(widths[i], heights[i], method);
+					if (freeIndex < 0)
+						continue;
+					bestFree[i] = freeRectangles.get(freeIndex);
+					bestWidth[i] = placedWidth;
+					bestHeight[i] = placedHeight;
+					bestScore1[i] = score1;
+					bestScore2[i] = score2;
 				}
+				else {
+					if (!candidates.update(i, widths[i], heights[i], method, firstNew))
+						continue;
+					int c = i * Candidates.KEPT;
+					bestFree[i] = candidates.place[c];
+					bestWidth[i] = candidates.placeWidth[c];
+					bestHeight[i] = candidates.placeHeight[c];
+					bestScore1[i] = candidates.placeScore1[c];
+					bestScore2[i] = candidates.placeScore2[c];
+				}
+				waiting[left++] = i;
 			}
-
-			if (bestRectIndex == -1)
+			waitingCount = left;
+			if (waitingCount == 0)
+				break;
+			
+			// Of equally good ones, the rectangle earliest in the list wins.
+			int best = waiting[0];
+			int bestAt = 0;
+			for (int k = 1; k < waitingCount; k++) {
+				int i = waiting[k];
+				if (bestScore1[i] < bestScore1[best] || (bestScore1[i] == bestScore1[best] && bestScore2[i] < bestScore2[best])) {
+					best = i;
+					bestAt = k;
+				}
+			}
+			
+			Rect node = new Rect(bestFree[best].x(), bestFree[best].y(), bestWidth[best], bestHeight[best]);
+			firstNew = PlaceRect(node);
+			placed[best] = node;
+			order[placedCount++] = best;
+			if (candidates != null)
+				candidates.split = node;
+			
+			System.arraycopy(waiting, bestAt + 1, waiting, bestAt, waitingCount - bestAt - 1);
+			waitingCount--;
+		}
+		return placedCount;
+	}
+	
+	
+	/**
+	 * The best few places of each rectangle of a batch, best first, kept 
+	 * between rounds.  A place goes stale only when a placement splits its 
+	 * free rectangle, and a split only adds a few free rectangles, which 
+	 * are all that need scoring to keep the places current.  The whole 
+	 * free list is only scored again when all of a rectangle's places have 
+	 * gone stale.
+	 * <p>
+	 * The places are ordered by their scores, and of equal ones the earlier 
+	 * in the free list comes first, as in the finders.  Every free 
+	 * rectangle that would rank before the bound is among the kept places, 
+	 * so the first of them is where the finders would place the rectangle.
+	 */
+	private class Candidates {
+		
+		static final int KEPT = 8;
+		
+		final Rect[] place;
+		final float[] placeWidth, placeHeight, placeScore1, placeScore2;
+		final int[] size;
+		
+		/** The scores no kept place reaches, or Float.MAX_VALUE if every place is kept. */
+		final float[] bound1, bound2;
+		
+		/** The last placement, which split the free rectangles it overlaps. */
+		Rect split;
+		
+		Candidates(int count) {
+			place = new Rect[count * KEPT];
+			placeWidth = new float[count * KEPT];
+			placeHeight = new float[count * KEPT];
+			placeScore1 = new float[count * KEPT];
+			placeScore2 = new float[count * KEPT];
+			size = new int[count];
+			bound1 = new float[count];
+			bound2 = new float[count];
+		}
+		
+		/**
+		 * Brings the places of the given rectangle up to date after the 
+		 * last split, or finds them if there was none.
+		 * 
+		 * @param firstNew the index of the first free rectangle the last 
+		 *        split added.
+		 * @return false if the rectangle fits nowhere.
+		 */
+		boolean update(int i, float w, float h, FreeRectChoiceHeuristic method, int firstNew) {
+			int base = i * KEPT;
+			int from = 0;
+			if (split != null) {
+				int kept = 0;
+				for (int c = base; c < base + size[i]; c++)
+					if (!overlaps(split, place[c]))
+						move(c, base + kept++);
+				size[i] = kept;
+				if (kept > 0 || bound1[i] == Float.MAX_VALUE)
+					from = firstNew;
+			}
+			if (from == 0) {
+				size[i] = 0;
+				bound1[i] = Float.MAX_VALUE;
+				bound2[i] = Float.MAX_VALUE;
+			}
+			for (int f = from; f < freeRectangles.size(); f++)
+				offer(i, w, h, method, f);
+			return size[i] > 0;
+		}
+		
+		/**
+		 * Scores the given free rectangle, which comes after all the kept 
+		 * ones in the free list, and keeps it if it ranks before the bound.
+		 */
+		private void offer(int i, float w, float h, FreeRectChoiceHeuristic method, int f) {
+			if (FindPositionForNewNode(w, h, method, f, f + 1) < 0)
 				return;
-
-			PlaceRect(bestNode);
-			rects.remove(bestRectIndex);
-		}	
+			if (!(score1 < bound1[i] || (score1 == bound1[i] && score2 < bound2[i])))
+				return;
+			
+			int base = i * KEPT;
+			int c = base + size[i];
+			if (size[i] == KEPT) {
+				// One place has to go, and nothing ranks after it from now on.
+				int last = c - 1;
+				if (!(score1 < placeScore1[last] || (score1 == placeScore1[last] && score2 < placeScore2[last]))) {
+					bound1[i] = score1;
+					bound2[i] = score2;
+					return;
+				}
+				bound1[i] = placeScore1[last];
+				bound2[i] = placeScore2[last];
+				c = last;
+			}
+			else
+				size[i]++;
+			
+			while (c > base && (score1 < placeScore1[c-1] || (score1 == placeScore1[c-1] && score2 < placeScore2[c-1]))) {
+				move(c - 1, c);
+				c--;
+			}
+			place[c] = freeRectangles.get(f);
+			placeWidth[c] = placedWidth;
+			placeHeight[c] = placedHeight;
+			placeScore1[c] = score1;
+			placeScore2[c] = score2;
+		}
 		
+		private void move(int from, int to) {
+			place[to] = place[from];
+			placeWidth[to] = placeWidth[from];
+			placeHeight[to] = placeHeight[from];
+			placeScore1[to] = placeScore1[from];
+			placeScore2[to] = placeScore2[from];
+		}
+	
+	}
+	
+	
+	/**
+	 * @return true if the two rectangles share some area, which is when a 
+	 *         used node splits a free one.
+	 */
+	private static boolean overlaps(Rect a, Rect b) {
+		return a.x() < b.x() + b.width() && b.x() < a.x() + a.width()
+				&& a.y() < b.y() + b.height() && b.y() < a.y() + a.height();
 	}
 
 	
@@ -138,42 +461,15 @@ public class MaxRectsContainer<T> extends Container<T> {
 		for (Rect r : freeRectangles)
 			System.out.printf("    Free Rect:  X: %d    Y: %d     H: %d     W: %d\n", r.x, r.y, r.height, r.width);
 		*/
-		Rect newNode = new Rect();
-		outFloat score1 = new outFloat(); // Unused in this function. We don't need to know the score after finding the position.
-		outFloat score2 = new outFloat();
-		switch(method)
-		{
-			case RectBestShortSideFit: 
-				newNode = FindPositionForNewNodeBestShortSideFit(width, height, score1, score2); 
-				break;
-			case RectBottomLeftRule: 
-				newNode = FindPositionForNewNodeBottomLeft(width, height, score1, score2); 
-				break;
-			case RectContactPointRule: 
-				newNode = FindPositionForNewNodeContactPoint(width, height, score1); 
-				break;
-			case RectBestLongSideFit: 
-				newNode = FindPositionForNewNodeBestLongSideFit(width, height, score2, score1); 
-				break;
-			case RectBestAreaFit: 
-				newNode = FindPositionForNewNodeBestAreaFit(width, height, score1, score2); 
-				break;
-		}
-			
-		if (newNode.height() == 0)
-			return newNode;
+		// The scores are left in score1 and score2, but are not needed here.
+		int freeIndex = FindPositionForNewNode(width, height, method);
+		if (freeIndex < 0)
+			return new Rect();
+		Rect freeNode = freeRectangles.get(freeIndex);
+		Rect newNode = new Rect(freeNode.x(), freeNode.y(), placedWidth, placedHeight);
 
 		
-		int numRectanglesToProcess = freeRectangles.size();
-		for(int i = 0; i < numRectanglesToProcess; ++i)
-		{
-			if (SplitFreeNode(freeRectangles.get(i), newNode))
-			{
-				freeRectangles.remove(i);
-				--i;
-				--numRectanglesToProcess;
-			}
-		}
+		int firstNew = SplitFreeNodes(newNode);
 		
 		/*
 		System.out.printf("freeRectangles BEFORE PRUNE:\n");
@@ -181,8 +477,9 @@ public class MaxRectsContainer<T> extends Container<T> {
 			System.out.printf("    Free Rect:  X: %d    Y: %d     H: %d     W: %d\n", r.x, r.y, r.height, r.width);
 		*/
 		
-		PruneFreeList();
-		usedRectangles.add(newNode);
+		PruneFreeList(firstNew);
+		addUsedRectangle(newNode);
+		recordPlacement(newNode.x(), newNode.y(), newNode.width(), newNode.height());
 
 		/*
 		System.out.printf("Score:  W: %d    H: %d    S1: %d    S2: %d\n", width, height, score1.val, score2.val);
@@ -195,85 +492,192 @@ public class MaxRectsContainer<T> extends Container<T> {
 
 	}
 
+	/**
+	 * Inserts a single bin into the container, possibly turned, and 
+	 * remembers it for {@link #getBins()}.
+	 * 
+	 * @param bin
+	 * @param method
+	 * @return where the bin went, with a height of 0 if it did not fit.
+	 */
+	public Rect insert(Bin<T> bin, FreeRectChoiceHeuristic method) {
+		inserts++;
+		Rect newNode = Insert(bin.getWidth(), bin.getHeight(), method);
+		if (newNode.height() == 0) {
+			overflow = true;
+			return newNode;
+		}
+		recordBin(bin, newNode.x(), newNode.y(), newNode.width() != bin.getWidth());
+		return newNode;
+	}
+	
+	/**
+	 * Removes a placed bin and gives its area back to the free space.  The 
+	 * free rectangles are maximal, so they are rebuilt from the remaining 
+	 * placements, which takes one split pass per placed rectangle.
+	 * 
+	 * @param bin the bin as it was handed to {@link #insert(Bin, FreeRectChoiceHeuristic)}.
+	 * @return false if the bin was not placed in this container.
+	 */
+	public boolean remove(Bin<T> bin) {
+		int i = indexOfBin(bin);
+		if (i < 0)
+			return false;
+		
+		Rect freed = placement(i);
+		for (int j = 0; j < usedRectangles.size(); j++) {
+			Rect u = usedRectangles.get(j);
+			if (u.x() == freed.x() && u.y() == freed.y()) {
+				usedRectangles.remove(j);
+				break;
+			}
+		}
+		forgetBin(i, usedRectangles);
+		edges = null;
+		
+		freeRectangles.clear();
+		freeRectangles.add(new Rect(0, 0, binWidth, binHeight));
+		indexFreeRectangles();
+		for (Rect used : usedRectangles) {
+			PruneFreeList(SplitFreeNodes(used));
+		}
+		return true;
+	}
+	
+	/**
+	 * Packs the placed bins again into an empty bin of the same size, 
+	 * largest first, to undo the fragmentation left by removals.  The bins 
+	 * keep being the handles for {@link #remove}, but may move or turn.
+	 * 
+	 * @param method
+	 * @return true if the bins were packed again, false if they did not 
+	 *         all fit that way, or rectangles were placed without a bin, 
+	 *         and the container was left as it was.
+	 */
+	public boolean compact(FreeRectChoiceHeuristic method) {
+		List<Bin<T>> placed = placedSources();
+		if (placed.size() != usedRectangles.size())
+			return false;
+		
+		int[] order = ItemOrder.AREA_DESC.sort(placed);
+		MaxRectsContainer<T> c = new MaxRectsContainer<T>(binWidth, binHeight);
+		c.setSplitIndex(splitIndex);
+		for (int i : order) {
+			if (c.insert(placed.get(i), method).height() == 0)
+				return false;
+		}
+		
+		usedRectangles = c.usedRectangles;
+		freeRectangles = c.freeRectangles;
+		grid = c.grid;
+		edges = null;
+		takePlacements(c, order);
+		return true;
+	}
+	
 	/**
 	 * Computes the ratio of used surface area to the total bin area.
 	 * @return
 	 */
 	public float Occupancy() {
-		long usedSurfaceArea = 0;
-		for(int i = 0; i < usedRectangles.size(); ++i)
-			usedSurfaceArea += usedRectangles.get(i).width() * usedRectangles.get(i).height();
-		return usedSurfaceArea / (binWidth * binHeight);
+		return occupancy();
 	};
 
 	
-	/** Computes the placement score for placing the given rectangle with the given method.
+	/**
+	 * Finds where the given rectangle would go with the given method, 
+	 * without placing it.
 	 * 
 	 * @param width
 	 * @param height
 	 * @param method
-	 * @param score1 [out] The primary placement score will be outputted here.
-	 * @param score2 [out] The secondary placement score will be outputted here. This isu sed to break ties.
-	 * @return Rect that identifies where the rectangle would be placed if it were placed.
-	 */
-	private Rect ScoreRect(float width, float height, FreeRectChoiceHeuristic method, outFloat score1, outFloat score2) {
-		Rect newNode = new Rect();
-		score1.val = Float.MAX_VALUE;
-		score2.val = Float.MAX_VALUE;
-		switch(method) {
-			case RectBestShortSideFit:
-				newNode = FindPositionForNewNodeBestShortSideFit(width, height,score1, score2);
-				break;
-			case RectBottomLeftRule:
-				newNode = FindPositionForNewNodeBottomLeft(width, height, score1,score2);
-				break;
-			case RectContactPointRule:
-				newNode = FindPositionForNewNodeContactPoint(width, height, score1);
-				/* Reverse since we are minimizing, but for contact point score bigger 
-				   is better. */
-				score1.val = -score1.val; 
-				break;
-			case RectBestLongSideFit:
-				newNode = FindPositionForNewNodeBestLongSideFit(width, height, score2, score1);
-				break;
-			case RectBestAreaFit:
-				newNode = FindPositionForNewNodeBestAreaFit(width, height, score1, score2);
-				break;
+	 * @return the index of the free rectangle it would go into, at its 
+	 *         top left corner, or -1 if it fits nowhere.  The size it would 
+	 *         take, swapped if turned, is left in placedWidth and 
+	 *         placedHeight, and its scores in score1 and score2.
+	 */
+	private int FindPositionForNewNode(float width, float height, FreeRectChoiceHeuristic method) {
+		return FindPositionForNewNode(width, height, method, 0, freeRectangles.size());
+	}
+	
+	
+	/**
+	 * Finds where the given rectangle would go among the free rectangles 
+	 * from index from up to index to, as above.  Of two equally good 
+	 * places, the one earlier in the free list wins.
+	 */
+	private int FindPositionForNewNode(float width, float height, FreeRectChoiceHeuristic method, int from, int to) {
+		switch(method)
+		{
+			case RectBestShortSideFit: 
+				return FindPositionForNewNodeBestShortSideFit(width, height, from, to); 
+			case RectBottomLeftRule: 
+				return FindPositionForNewNodeBottomLeft(width, height, from, to); 
+			case RectContactPointRule: 
+				return FindPositionForNewNodeContactPoint(width, height, from, to); 
+			case RectBestLongSideFit: 
+				return FindPositionForNewNodeBestLongSideFit(width, height, from, to); 
+			case RectBestAreaFit: 
+				return FindPositionForNewNodeBestAreaFit(width, height, from, to); 
+			default: 
+				return -1;
 		}
+	}
+
+	
+	/** Computes the placement score for placing the given rectangle with the given method.
+	 * The primary placement score is left in score1, and the secondary 
+	 * one, which is used to break ties, in score2.  Smaller is better for 
+	 * both.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param method
+	 * @return the index of the free rectangle the rectangle would be placed 
+	 *         into, as for FindPositionForNewNode, or -1.
+	 */
+	private int ScoreRect(float width, float height, FreeRectChoiceHeuristic method) {
+		int freeIndex = FindPositionForNewNode(width, height, method);
+		
+		/* Reverse since we are minimizing, but for contact point score bigger 
+		   is better. */
+		if (method == FreeRectChoiceHeuristic.RectContactPointRule)
+			score1 = -score1;
 
 		// Cannot fit the current rectangle.
-		if (newNode.height() == 0)
+		if (freeIndex < 0)
 		{
-			score1.val = Float.MAX_VALUE;
-			score2.val = Float.MAX_VALUE;
+			score1 = Float.MAX_VALUE;
+			score2 = Float.MAX_VALUE;
 		}
 
-		return newNode;	
+		return freeIndex;	
 	}
 
 	/**
 	 * Places the given rectangle into the bin.
+	 * 
+	 * @return the index of the first free rectangle the split added.  The 
+	 *         ones from there on are new.
 	 */
-	private void PlaceRect(Rect node) {
-
-		int numRectanglesToProcess = freeRectangles.size();
-		for(int i = 0; i < numRectanglesToProcess; ++i)
-		{
-			if (SplitFreeNode(freeRectangles.get(i), node))
-			{
-				freeRectangles.remove(i);
-				--i;
-				--numRectanglesToProcess;
-			}
-		}
+	private int PlaceRect(Rect node) {
 
-		PruneFreeList();
+		int firstNew = SplitFreeNodes(node);
+		PruneFreeList(firstNew);
 
-		usedRectangles.add(node);
-		//		dst.push_back(bestNode); ///\todo Refactor so that this compiles.
+		addUsedRectangle(node);
+		recordPlacement(node.x(), node.y(), node.width(), node.height());
+		return firstNew;
 	};
 
 	
+	private void addUsedRectangle(Rect node) {
+		usedRectangles.add(node);
+		if (edges != null)
+			edges.add(node);
+	}
+	
+	
 	/**
 	 * Returns 0 if the two intervals i1 and i2 are disjoint, or the length 
 	 * of their overlap otherwise.
@@ -293,7 +697,10 @@ public class MaxRectsContainer<T> extends Container<T> {
 	
 	
 	/**
-	 * Computes the placement score for the -CP variant.
+	 * Computes the placement score for the -CP variant.  Only the edges 
+	 * on the lines the sides of the node lie on can touch it, so those 
+	 * are looked up in the edge index rather than going through every 
+	 * used rectangle.
 	 * 
 	 * @param x
 	 * @param y
@@ -309,299 +716,322 @@ public class MaxRectsContainer<T> extends Container<T> {
 		if (y == 0 || y + height == binHeight)
 			score += width;
 
-		for(int i = 0; i < usedRectangles.size(); ++i)
-		{
-			if (usedRectangles.get(i).x() == x + width 
-					|| usedRectangles.get(i).x() + usedRectangles.get(i).width() == x)
-				score += CommonIntervalLength(
-						usedRectangles.get(i).y(), 
-						usedRectangles.get(i).y() + usedRectangles.get(i).height(), 
-						y, 
-						y + height);
-			if (usedRectangles.get(i).y() == y + height 
-					|| usedRectangles.get(i).y() + usedRectangles.get(i).height() == y)
-				score += CommonIntervalLength(
-						usedRectangles.get(i).x(), 
-						usedRectangles.get(i).x() + usedRectangles.get(i).width(), 
-						x, 
-						x + width);
+		if (edges == null) {
+			edges = new EdgeIndex();
+			for (Rect used : usedRectangles)
+				edges.add(used);
 		}
+		score = edges.touching(score, x, y, width, height);
 		return score;
 	};
 
 	
 	
-	private Rect FindPositionForNewNodeBottomLeft(float width, float height, outFloat bestY, outFloat bestX) {
-		Rect bestNode = new Rect();
-		// memset(&bestNode, 0, sizeof(Rect));
-
-		bestY.val = Float.MAX_VALUE;
+	/**
+	 * The finders below leave the best position in score1 (the bottom 
+	 * edge) and score2 (the left edge).
+	 */
+	private int FindPositionForNewNodeBottomLeft(float width, float height, int from, int to) {
+		int bestIndex = -1;
+		score1 = Float.MAX_VALUE;
+		score2 = Float.MAX_VALUE;
 
-		for(int i = 0; i < freeRectangles.size(); ++i)
+		for(int i = from; i < to; ++i)
 		{
+			Rect free = freeRectangles.get(i);
+			
 			// Try to place the rectangle in upright (non-flipped) orientation.
-			if (freeRectangles.get(i).width() >= width && freeRectangles.get(i).height() >= height)
+			if (free.width() >= width && free.height() >= height)
 			{
-				float topSideY = freeRectangles.get(i).y() + height;
-				if (topSideY < bestY.val || (topSideY == bestY.val && freeRectangles.get(i).x() < bestX.val))
+				float topSideY = free.y() + height;
+				if (topSideY < score1 || (topSideY == score1 && free.x() < score2))
 				{
-					bestNode = new Rect(
-							freeRectangles.get(i).x(),
-							freeRectangles.get(i).y(),
-							width,
-							height
-					);
-					bestY.val = topSideY;
-					bestX.val = freeRectangles.get(i).x();
+					bestIndex = i;
+					placedWidth = width;
+					placedHeight = height;
+					score1 = topSideY;
+					score2 = free.x();
 				}
 			}
-			if (freeRectangles.get(i).width() >= height && freeRectangles.get(i).height() >= width)
+			if (free.width() >= height && free.height() >= width)
 			{
-				float topSideY = freeRectangles.get(i).y() + width;
-				if (topSideY < bestY.val || (topSideY == bestY.val && freeRectangles.get(i).x() < bestX.val))
+				float topSideY = free.y() + width;
+				if (topSideY < score1 || (topSideY == score1 && free.x() < score2))
 				{
-					bestNode = new Rect(
-							freeRectangles.get(i).x(),
-							freeRectangles.get(i).y(),
-							height,
-							width
-					);
-					bestY.val = topSideY;
-					bestX.val = freeRectangles.get(i).x();
+					bestIndex = i;
+					placedWidth = height;
+					placedHeight = width;
+					score1 = topSideY;
+					score2 = free.x();
 				}
 			}
 		}
-		return bestNode;
+		return bestIndex;
 	};
 
 	
-	
-	private Rect FindPositionForNewNodeBestShortSideFit(float width, float height, outFloat bestShortSideFit, outFloat bestLongSideFit) { 
-		Rect bestNode = new Rect();
-		// memset(&bestNode, 0, sizeof(Rect));
-
-		bestShortSideFit.val = Float.MAX_VALUE;
+	/**
+	 * Leaves the short side fit in score1 and the long side fit in score2.
+	 */
+	private int FindPositionForNewNodeBestShortSideFit(float width, float height, int from, int to) { 
+		int bestIndex = -1;
+		score1 = Float.MAX_VALUE;
+		score2 = Float.MAX_VALUE;
 
-		for(int i = 0; i < freeRectangles.size(); ++i)
+		for(int i = from; i < to; ++i)
 		{
+			Rect free = freeRectangles.get(i);
+			
 			// Try to place the rectangle in upright (non-flipped) orientation.
-			if (freeRectangles.get(i).width() >= width && freeRectangles.get(i).height() >= height)
+			if (free.width() >= width && free.height() >= height)
 			{
-				float leftoverHoriz = Helper.abs(freeRectangles.get(i).width() - width);
-				float leftoverVert = Helper.abs(freeRectangles.get(i).height() - height);
+				float leftoverHoriz = Helper.abs(free.width() - width);
+				float leftoverVert = Helper.abs(free.height() - height);
 				float shortSideFit = Helper.min(leftoverHoriz, leftoverVert);
 				float longSideFit = Helper.max(leftoverHoriz, leftoverVert);
 
-				if (shortSideFit < bestShortSideFit.val || (shortSideFit == bestShortSideFit.val && longSideFit < bestLongSideFit.val))
+				if (shortSideFit < score1 || (shortSideFit == score1 && longSideFit < score2))
 				{
-					bestNode = new Rect(
-							freeRectangles.get(i).x(),
-							freeRectangles.get(i).y(),
-							width,
-							height
-					);
-					bestShortSideFit.val = shortSideFit;
-					bestLongSideFit.val = longSideFit;
+					bestIndex = i;
+					placedWidth = width;
+					placedHeight = height;
+					score1 = shortSideFit;
+					score2 = longSideFit;
 				}
 			}
 
-			if (freeRectangles.get(i).width() >= height && freeRectangles.get(i).height() >= width)
+			if (free.width() >= height && free.height() >= width)
 			{
-				float flippedLeftoverHoriz = Helper.abs(freeRectangles.get(i).width() - height);
-				float flippedLeftoverVert = Helper.abs(freeRectangles.get(i).height() - width);
+				float flippedLeftoverHoriz = Helper.abs(free.width() - height);
+				float flippedLeftoverVert = Helper.abs(free.height() - width);
 				float flippedShortSideFit = Helper.min(flippedLeftoverHoriz, flippedLeftoverVert);
 				float flippedLongSideFit = Helper.max(flippedLeftoverHoriz, flippedLeftoverVert);
 
-				if (flippedShortSideFit < bestShortSideFit.val || (flippedShortSideFit == bestShortSideFit.val && flippedLongSideFit < bestLongSideFit.val))
+				if (flippedShortSideFit < score1 || (flippedShortSideFit == score1 && flippedLongSideFit < score2))
 				{
-					bestNode = new Rect(
-							freeRectangles.get(i).x(),
-							freeRectangles.get(i).y(),
-							height,
-							width
-					);
-					bestShortSideFit.val = flippedShortSideFit;
-					bestLongSideFit.val = flippedLongSideFit;
+					bestIndex = i;
+					placedWidth = height;
+					placedHeight = width;
+					score1 = flippedShortSideFit;
+					score2 = flippedLongSideFit;
 				}
 			}
 		}
-		return bestNode;
+		return bestIndex;
 
 	};
 
 	
 	/**
-	 * 
-	 * @param width
-	 * @param height
-	 * @param bestShortSideFit
-	 * @param bestLongSideFit
-	 * @return
+	 * Leaves the long side fit in score1 and the short side fit in score2.
 	 */
-	private Rect FindPositionForNewNodeBestLongSideFit(float width, float height, outFloat bestShortSideFit, outFloat bestLongSideFit) { 
-		Rect bestNode = new Rect();
-		// memset(&bestNode, 0, sizeof(Rect));
-
-		bestLongSideFit.val = Float.MAX_VALUE;
+	private int FindPositionForNewNodeBestLongSideFit(float width, float height, int from, int to) { 
+		int bestIndex = -1;
+		score1 = Float.MAX_VALUE;
+		score2 = Float.MAX_VALUE;
 
-		for(int i = 0; i < freeRectangles.size(); ++i)
+		for(int i = from; i < to; ++i)
 		{
+			Rect free = freeRectangles.get(i);
+			
 			// Try to place the rectangle in upright (non-flipped) orientation.
-			if (freeRectangles.get(i).width() >= width && freeRectangles.get(i).height() >= height)
+			if (free.width() >= width && free.height() >= height)
 			{
-				float leftoverHoriz = Helper.abs(freeRectangles.get(i).width() - width);
-				float leftoverVert = Helper.abs(freeRectangles.get(i).height() - height);
+				float leftoverHoriz = Helper.abs(free.width() - width);
+				float leftoverVert = Helper.abs(free.height() - height);
 				float shortSideFit = Helper.min(leftoverHoriz, leftoverVert);
 				float longSideFit = Helper.max(leftoverHoriz, leftoverVert);
 
-				if (longSideFit < bestLongSideFit.val || (longSideFit == bestLongSideFit.val && shortSideFit < bestShortSideFit.val))
+				if (longSideFit < score1 || (longSideFit == score1 && shortSideFit < score2))
 				{
-					bestNode = new Rect(
-							freeRectangles.get(i).x(),
-							freeRectangles.get(i).y(),
-							width,
-							height
-					);
-					bestShortSideFit.val = shortSideFit;
-					bestLongSideFit.val = longSideFit;
+					bestIndex = i;
+					placedWidth = width;
+					placedHeight = height;
+					score1 = longSideFit;
+					score2 = shortSideFit;
 				}
 			}
 
-			if (freeRectangles.get(i).width() >= height && freeRectangles.get(i).height() >= width)
+			if (free.width() >= height && free.height() >= width)
 			{
-				float leftoverHoriz = Helper.abs(freeRectangles.get(i).width() - height);
-				float leftoverVert = Helper.abs(freeRectangles.get(i).height() - width);
+				float leftoverHoriz = Helper.abs(free.width() - height);
+				float leftoverVert = Helper.abs(free.height() - width);
 				float shortSideFit = Helper.min(leftoverHoriz, leftoverVert);
 				float longSideFit = Helper.max(leftoverHoriz, leftoverVert);
 
-				if (longSideFit < bestLongSideFit.val || (longSideFit == bestLongSideFit.val && shortSideFit < bestShortSideFit.val))
+				if (longSideFit < score1 || (longSideFit == score1 && shortSideFit < score2))
 				{
-					bestNode = new Rect(
-							freeRectangles.get(i).x(),
-							freeRectangles.get(i).y(),
-							height,
-							width
-					);
-					bestShortSideFit.val = shortSideFit;
-					bestLongSideFit.val = longSideFit;
+					bestIndex = i;
+					placedWidth = height;
+					placedHeight = width;
+					score1 = longSideFit;
+					score2 = shortSideFit;
 				}
 			}
 		}
-		return bestNode;
+		return bestIndex;
 	};
 	
 	
 	/**
-	 * 
-	 * @param width
-	 * @param height
-	 * @param bestAreaFit
-	 * @param bestShortSideFit
-	 * @return
+	 * Leaves the area fit in score1 and the short side fit in score2.
 	 */
-	private Rect FindPositionForNewNodeBestAreaFit(float width, float height, outFloat bestAreaFit, outFloat bestShortSideFit) { 
-		Rect bestNode = new Rect();
-		// memset(&bestNode, 0, sizeof(Rect));
-
-		bestAreaFit.val = Float.MAX_VALUE;
+	private int FindPositionForNewNodeBestAreaFit(float width, float height, int from, int to) { 
+		int bestIndex = -1;
+		score1 = Float.MAX_VALUE;
+		score2 = Float.MAX_VALUE;
 
-		for(int i = 0; i < freeRectangles.size(); ++i)
+		for(int i = from; i < to; ++i)
 		{
-			float areaFit = freeRectangles.get(i).width() * freeRectangles.get(i).height() - width * height;
+			Rect free = freeRectangles.get(i);
+			float areaFit = free.width() * free.height() - width * height;
 
 			// Try to place the rectangle in upright (non-flipped) orientation.
-			if (freeRectangles.get(i).width() >= width && freeRectangles.get(i).height() >= height)
+			if (free.width() >= width && free.height() >= height)
 			{
-				float leftoverHoriz = Helper.abs(freeRectangles.get(i).width() - width);
-				float leftoverVert = Helper.abs(freeRectangles.get(i).height() - height);
+				float leftoverHoriz = Helper.abs(free.width() - width);
+				float leftoverVert = Helper.abs(free.height() - height);
 				float shortSideFit = Helper.min(leftoverHoriz, leftoverVert);
 
-				if (areaFit < bestAreaFit.val || (areaFit == bestAreaFit.val && shortSideFit < bestShortSideFit.val))
+				if (areaFit < score1 || (areaFit == score1 && shortSideFit < score2))
 				{
-					bestNode = new Rect(
-							freeRectangles.get(i).x(),
-							freeRectangles.get(i).y(),
-							width,
-							height
-					);
-					bestShortSideFit.val = shortSideFit;
-					bestAreaFit.val = areaFit;
+					bestIndex = i;
+					placedWidth = width;
+					placedHeight = height;
+					score1 = areaFit;
+					score2 = shortSideFit;
 				}
 			}
 
-			if (freeRectangles.get(i).width() >= height && freeRectangles.get(i).height() >= width)
+			if (free.width() >= height && free.height() >= width)
 			{
-				float leftoverHoriz = Helper.abs(freeRectangles.get(i).width() - height);
-				float leftoverVert = Helper.abs(freeRectangles.get(i).height() - width);
+				float leftoverHoriz = Helper.abs(free.width() - height);
+				float leftoverVert = Helper.abs(free.height() - width);
 				float shortSideFit = Helper.min(leftoverHoriz, leftoverVert);
 
-				if (areaFit < bestAreaFit.val || (areaFit == bestAreaFit.val && shortSideFit < bestShortSideFit.val))
+				if (areaFit < score1 || (areaFit == score1 && shortSideFit < score2))
 				{
-					bestNode = new Rect(
-							freeRectangles.get(i).x(),
-							freeRectangles.get(i).y(),
-							height,
-							width
-					);
-					bestShortSideFit.val = shortSideFit;
-					bestAreaFit.val = areaFit;
+					bestIndex = i;
+					placedWidth = height;
+					placedHeight = width;
+					score1 = areaFit;
+					score2 = shortSideFit;
 				}
 			}
 		}
-		return bestNode;	
+		return bestIndex;	
 	};
 	
 	
 	/**
-	 * 
-	 * @param width
-	 * @param height
-	 * @param bestContactScore
-	 * @return
+	 * Leaves the contact score in score1, bigger being better, and no 
+	 * second score.
 	 */
-	private Rect FindPositionForNewNodeContactPoint(float width, float height, outFloat bestContactScore) { 
-		Rect bestNode = new Rect();
-		// memset(&bestNode, 0, sizeof(Rect));
-
-		bestContactScore.val = -1;
+	private int FindPositionForNewNodeContactPoint(float width, float height, int from, int to) { 
+		int bestIndex = -1;
+		score1 = -1;
+		score2 = Float.MAX_VALUE;
 
-		for(int i = 0; i < freeRectangles.size(); ++i)
+		for(int i = from; i < to; ++i)
 		{
+			Rect free = freeRectangles.get(i);
+			
 			// Try to place the rectangle in upright (non-flipped) orientation.
-			if (freeRectangles.get(i).width() >= width && freeRectangles.get(i).height() >= height)
+			if (free.width() >= width && free.height() >= height)
 			{
-				int score = ContactPointScoreNode(freeRectangles.get(i).x(), freeRectangles.get(i).y(), width, height);
-				if (score > bestContactScore.val)
+				int score = ContactPointScoreNode(free.x(), free.y(), width, height);
+				if (score > score1)
 				{
-					bestNode = new Rect(
-							freeRectangles.get(i).x(),
-							freeRectangles.get(i).y(),
-							width,
-							height
-					);
-					bestContactScore.val = score;
+					bestIndex = i;
+					placedWidth = width;
+					placedHeight = height;
+					score1 = score;
 				}
 			}
-			if (freeRectangles.get(i).width() >= height && freeRectangles.get(i).height() >= width)
+			if (free.width() >= height && free.height() >= width)
 			{
-				int score = ContactPointScoreNode(freeRectangles.get(i).x(), freeRectangles.get(i).y(), height, width);
-				if (score > bestContactScore.val)
+				int score = ContactPointScoreNode(free.x(), free.y(), height, width);
+				if (score > score1)
 				{
-					bestNode = new Rect(
-							freeRectangles.get(i).x(),
-							freeRectangles.get(i).y(),
-							height,
-							width
-					);
-					bestContactScore.val = score;
+					bestIndex = i;
+					placedWidth = height;
+					placedHeight = width;
+					score1 = score;
 				}
 			}
 		}
-		return bestNode;
+		return bestIndex;
 	};
 
 	
 	
+	/**
+	 * Splits every free rectangle the used node overlaps, and replaces it 
+	 * by the pieces left around the used node.  The pieces are added to 
+	 * the end of the free list in the order of the rectangles they came 
+	 * from, whichever way those were found.
+	 * 
+	 * @param usedNode
+	 * @return the index of the first piece in the free list.
+	 */
+	private int SplitFreeNodes(Rect usedNode) {
+		if (grid == null) {
+			int numRectanglesToProcess = freeRectangles.size();
+			for(int i = 0; i < numRectanglesToProcess; ++i)
+			{
+				if (SplitFreeNode(freeRectangles.get(i), usedNode))
+				{
+					freeRectangles.remove(i);
+					--i;
+					--numRectanglesToProcess;
+				}
+			}
+			return numRectanglesToProcess;
+		}
+		
+		grid.overlapping(usedNode, overlapping);
+		int firstNew = freeRectangles.size() - overlapping.size();
+		for (Rect freeNode : overlapping)
+			SplitFreeNode(freeNode, usedNode);
+		for (int k = overlapping.size() - 1; k >= 0; k--)
+			removeFreeRectangle(indexOfFreeRectangle(overlapping.get(k)));
+		return firstNew;
+	}
+	
+	
+	/**
+	 * The free list only grows at its end, so it stays sorted by the order 
+	 * the grid numbered its rectangles in.
+	 */
+	private int indexOfFreeRectangle(Rect r) {
+		long order = grid.order(r);
+		int low = 0;
+		int high = freeRectangles.size() - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (grid.order(freeRectangles.get(mid)) < order)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+	
+	
+	private void addFreeRectangle(Rect r) {
+		freeRectangles.add(r);
+		if (grid != null)
+			grid.add(r);
+	}
+	
+	
+	private void removeFreeRectangle(int i) {
+		Rect r = freeRectangles.remove(i);
+		if (grid != null)
+			grid.remove(r);
+	}
+	
+	
 	/**
 	 * @param freeNode
 	 * @param usedNode
@@ -632,7 +1062,7 @@ public class MaxRectsContainer<T> extends Container<T> {
 						freeNode.width(),
 						usedNode.y() - freeNode.y()
 						);
-				freeRectangles.add(newNode);
+				addFreeRectangle(newNode);
 			}
 
 			// New node at the bottom side of the used node.
@@ -644,7 +1074,7 @@ public class MaxRectsContainer<T> extends Container<T> {
 						freeNode.width(),
 						freeNode.y() + freeNode.height() - (usedNode.y() + usedNode.height())
 						);
-				freeRectangles.add(newNode);
+				addFreeRectangle(newNode);
 			}
 		}
 
@@ -659,7 +1089,7 @@ public class MaxRectsContainer<T> extends Container<T> {
 						usedNode.x() - freeNode.x(),
 						freeNode.height()
 					);
-				freeRectangles.add(newNode);
+				addFreeRectangle(newNode);
 			}
 
 			// New node at the right side of the used node.
@@ -671,7 +1101,7 @@ public class MaxRectsContainer<T> extends Container<T> {
 						freeNode.x() + freeNode.width() - (usedNode.x() + usedNode.width()),
 						freeNode.height()
 					);
-				freeRectangles.add(newNode);
+				addFreeRectangle(newNode);
 			}
 		}
 		/*
@@ -685,24 +1115,65 @@ public class MaxRectsContainer<T> extends Container<T> {
 
 	
 	/** 
-	 * Goes through the free rectangle list and removes any redundant entries.
+	 * Goes through the free rectangle list and removes any redundant entries. 
+	 * <p>
+	 * The rectangles before firstNew were pruned after the last split, so 
+	 * none of them contains another.  Neither can one of them lie inside a 
+	 * new rectangle, as that was cut from an old rectangle which would then 
+	 * contain it as well.  So only the new rectangles can be redundant: one 
+	 * that lies in another rectangle, or that has an identical twin later 
+	 * in the list, goes.  That is what a pass over every pair leaves, in 
+	 * the same order, at a cost of one bounding box test per old rectangle 
+	 * instead of a test per pair. 
+	 * <p> 
+	 * The old rectangles are not kept sorted or swept by x or y: the new 
+	 * ones are a handful of pieces around the placed rectangle, so one 
+	 * linear pass that tests each old rectangle against their bounding box 
+	 * is cheaper than keeping a sorted order up to date through every 
+	 * split and removal.  PruneTest checks the placements against a pass 
+	 * over every pair.
+	 * 
+	 * @param firstNew the index of the first rectangle split off since the 
+	 *        list was last pruned.
 	 */
-	private void PruneFreeList() {
-
-		for(int i = 0; i < freeRectangles.size(); ++i)
-			for(int j = i+1; j < freeRectangles.size(); ++j) 
-			{
-				if (Rect.isContainedIn(freeRectangles.get(i), freeRectangles.get(j)))
-				{
-					freeRectangles.remove(i);
-					--i;
-					break;
-				}
-				if (Rect.isContainedIn(freeRectangles.get(j), freeRectangles.get(i)))
-				{
-					freeRectangles.remove(j);
-					--j;
-				}
+	private void PruneFreeList(int firstNew) {
+		int size = freeRectangles.size();
+		if (firstNew >= size)
+			return;
+		if (redundant.length < size - firstNew)
+			redundant = new boolean[2 * (size - firstNew)];
+		
+		// New against new; of two identical ones the later one is kept.
+		float left = Float.MAX_VALUE, top = Float.MAX_VALUE;
+		float right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+		for (int i = firstNew; i < size; i++) {
+			Rect a = freeRectangles.get(i);
+			boolean r = false;
+			for (int j = firstNew; j < size && !r; j++) {
+				Rect b = freeRectangles.get(j);
+				r = j != i && Rect.isContainedIn(a, b) && (j > i || !Rect.isContainedIn(b, a));
 			}
+			redundant[i - firstNew] = r;
+			left = Helper.min(left, a.x());
+			top = Helper.min(top, a.y());
+			right = Helper.max(right, a.x() + a.width());
+			bottom = Helper.max(bottom, a.y() + a.height());
+		}
+		
+		// New against old.  Only old rectangles that reach into the box 
+		// around the new ones can hold one of them.
+		for (int j = 0; j < firstNew; j++) {
+			Rect b = freeRectangles.get(j);
+			if (b.x() >= right || b.y() >= bottom 
+					|| b.x() + b.width() <= left || b.y() + b.height() <= top)
+				continue;
+			for (int i = firstNew; i < size; i++)
+				if (!redundant[i - firstNew] && Rect.isContainedIn(freeRectangles.get(i), b))
+					redundant[i - firstNew] = true;
+		}
+		
+		for (int i = size - 1; i >= firstNew; i--)
+			if (redundant[i - firstNew])
+				removeFreeRectangle(i);
 	}
 }
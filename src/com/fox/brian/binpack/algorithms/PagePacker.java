@@ -0,0 +1,320 @@
+package com.fox.brian.binpack.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.util.Rect;
+
+/**
+ * Packs bins onto as few pages of a fixed size as it can, opening a new 
+ * page whenever a bin fits on none of the open ones.
+ * 
+ * All but guillotine pages may turn bins by 90 degrees, see 
+ * {@link Bin#isRotated()}. 
+ * 
+ * The bins are first dealt out to the pages first fit, in one item 
+ * order.  Each guillotine or MaxRects page is then packed on its own again 
+ * with every item order and heuristic of the chosen container, keeping the 
+ * layout with the smallest bounding box that still holds all of the page's 
+ * bins.  That gathers the free space of a page into one corner, where 
+ * bins from the last page are pulled in afterwards; a last page that 
+ * empties is dropped, and the one before it is tried next.  The pages do 
+ * not depend on each other while they are refined, so with an executor 
+ * they are refined in parallel.  Shelf pages keep the layout they were 
+ * dealt, which is what makes them fast.
+ */
+public class PagePacker<T> {
+	
+	private final float pageWidth;
+	private final float pageHeight;
+	private final ContainerType type;
+	private final ExecutorService executor;
+	private ItemOrder order = ItemOrder.MAX_SIDE_DESC;
+	private int pageCount = 0;
+	
+	
+	/**
+	 * @param pageWidth
+	 * @param pageHeight
+	 * @param type the container used for each page.
+	 * @param executor refines the pages in parallel.  May be null to work 
+	 *        on the calling thread.
+	 */
+	public PagePacker(float pageWidth, float pageHeight, ContainerType type, ExecutorService executor) {
+		if (!(pageWidth > 0 && pageHeight > 0))
+			throw new IllegalArgumentException("A page needs a positive size, not " + pageWidth + "x" + pageHeight);
+		this.pageWidth = pageWidth;
+		this.pageHeight = pageHeight;
+		this.type = type;
+		this.executor = executor;
+	}
+	
+	
+	public PagePacker(float pageWidth, float pageHeight, ContainerType type) {
+		this(pageWidth, pageHeight, type, null);
+	}
+	
+	
+	public ItemOrder getItemOrder() {
+		return order;
+	}
+	
+	
+	/**
+	 * Selects the order in which the bins are dealt out to the pages. 
+	 * Defaults to {@link ItemOrder#MAX_SIDE_DESC}.
+	 * 
+	 * @param order
+	 */
+	public void setItemOrder(ItemOrder order) {
+		this.order = order;
+	}
+	
+	
+	/**
+	 * @return the number of pages used by the last pack.
+	 */
+	public int getPageCount() {
+		return pageCount;
+	}
+	
+	
+	/**
+	 * Packs the bins onto pages.
+	 * 
+	 * @param bins
+	 * @return a placed copy of every bin, in the order given, with the page 
+	 *         it was placed on.
+	 * @throws IllegalArgumentException if a bin is larger than a page.
+	 */
+	public ArrayList<Bin<T>> pack(List<Bin<T>> bins) {
+		boolean turns = type != ContainerType.GUILLOTINE;
+		for (Bin<T> b : bins) {
+			boolean fits = b.getWidth() <= pageWidth && b.getHeight() <= pageHeight;
+			boolean turnedFits = b.getHeight() <= pageWidth && b.getWidth() <= pageHeight;
+			if (!fits && !(turns && turnedFits))
+				throw new IllegalArgumentException("A bin of " + b.getWidth() + "x" + b.getHeight()
+						+ " does not fit on a page of " + pageWidth + "x" + pageHeight);
+		}
+		
+		// Deal the bins out first fit.
+		ArrayList<Page> pages = new ArrayList<Page>();
+		for (int i : order.sort(bins)) {
+			boolean placed = false;
+			for (int p = 0; p < pages.size() && !placed; p++)
+				placed = pages.get(p).add(bins, i);
+			if (!placed) {
+				Page page = new Page();
+				page.add(bins, i);
+				pages.add(page);
+			}
+		}
+		
+		if (type == ContainerType.GUILLOTINE || type == ContainerType.MAXRECTS) {
+			refine(pages, bins);
+			while (pages.size() > 1 && pullLastPage(pages, bins))
+				pages.remove(pages.size() - 1);
+		}
+		pageCount = pages.size();
+		
+		ArrayList<Bin<T>> result = new ArrayList<Bin<T>>(bins.size());
+		for (int i = 0; i < bins.size(); i++)
+			result.add(null);
+		for (int p = 0; p < pages.size(); p++) {
+			Page page = pages.get(p);
+			for (int j = 0; j < page.members.size(); j++) {
+				int i = page.members.get(j);
+				result.set(i, new Bin<T>(bins.get(i), page.x[j], page.y[j], p, page.turned[j]));
+			}
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Packs every page again on its own, on the executor if there is one. 
+	 * A page whose refinement is interrupted keeps its first fit layout.
+	 */
+	private void refine(ArrayList<Page> pages, final List<Bin<T>> bins) {
+		if (executor == null) {
+			for (Page page : pages)
+				page.refine(bins);
+			return;
+		}
+		
+		ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>(pages.size());
+		for (final Page page : pages) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					page.refine(bins);
+					return null;
+				}
+			});
+		}
+		
+		List<Future<Void>> futures;
+		try {
+			futures = executor.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		for (Future<Void> f : futures) {
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (CancellationException e) {
+				// Keep the first fit layout.
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+	
+	
+	/**
+	 * Moves what it can of the last page onto the pages before it, in the 
+	 * order the bins were dealt.  The bins that stay keep their places.
+	 * 
+	 * @return true if the last page is now empty.
+	 */
+	private boolean pullLastPage(ArrayList<Page> pages, List<Bin<T>> bins) {
+		Page last = pages.get(pages.size() - 1);
+		int kept = 0;
+		for (int j = 0; j < last.members.size(); j++) {
+			int i = last.members.get(j);
+			boolean placed = false;
+			for (int p = 0; p < pages.size() - 1 && !placed; p++)
+				placed = pages.get(p).add(bins, i);
+			if (!placed) {
+				last.x[kept] = last.x[j];
+				last.y[kept] = last.y[j];
+				last.turned[kept] = last.turned[j];
+				last.members.set(kept++, i);
+			}
+		}
+		
+		// The container of the last page still holds the bins that left, 
+		// but nothing is added to it again.
+		while (last.members.size() > kept)
+			last.members.remove(last.members.size() - 1);
+		return kept == 0;
+	}
+	
+	
+	/**
+	 * One page: its bins, as indices into the caller's list, and where 
+	 * they were placed.
+	 */
+	private class Page {
+		
+		final ArrayList<Integer> members = new ArrayList<Integer>();
+		float[] x = new float[8];
+		float[] y = new float[8];
+		boolean[] turned = new boolean[8];
+		
+		Container<T> container;
+		
+		Page() {
+			switch (type) {
+				case GUILLOTINE:
+					container = new GuillotineContainer<T>(pageWidth, pageHeight, 0, 0);
+					break;
+				case MAXRECTS:
+					container = new MaxRectsContainer<T>(pageWidth, pageHeight);
+					break;
+				case SHELF:
+					container = new ShelfContainer<T>(pageWidth, pageHeight, true);
+					break;
+				default:
+					container = new ShelfNextFitContainer<T>(pageWidth, pageHeight);
+					break;
+			}
+		}
+		
+		/**
+		 * @return true if the bin fit on the page.
+		 */
+		boolean add(List<Bin<T>> bins, int i) {
+			Bin<T> b = bins.get(i);
+			Rect r;
+			switch (type) {
+				case GUILLOTINE:
+					r = ((GuillotineContainer<T>) container).insert(b, true,
+							GuillotineContainer.FreeRectChoiceHeuristic.RectBestAreaFit,
+							GuillotineContainer.GuillotineSplitHeuristic.SplitMinimizeArea);
+					break;
+				case MAXRECTS:
+					r = ((MaxRectsContainer<T>) container).insert(b,
+							MaxRectsContainer.FreeRectChoiceHeuristic.RectBestShortSideFit);
+					break;
+				case SHELF:
+					r = ((ShelfContainer<T>) container).insert(b,
+							ShelfContainer.ShelfChoiceHeuristic.ShelfBestAreaFit);
+					break;
+				default:
+					r = ((ShelfNextFitContainer<T>) container).insert(b);
+					break;
+			}
+			if (r.height() == 0)
+				return false;
+			
+			int j = members.size();
+			if (j == x.length) {
+				x = Arrays.copyOf(x, 2 * j);
+				y = Arrays.copyOf(y, 2 * j);
+				turned = Arrays.copyOf(turned, 2 * j);
+			}
+			members.add(i);
+			x[j] = r.x();
+			y[j] = r.y();
+			turned[j] = r.width() != b.getWidth();
+			return true;
+		}
+		
+		/**
+		 * Packs the page's bins again with every item order and heuristic, 
+		 * and keeps the layout with the smallest bounding box, along with 
+		 * the container that holds it, so that more bins can be added.
+		 */
+		void refine(List<Bin<T>> bins) {
+			ArrayList<Bin<T>> content = new ArrayList<Bin<T>>(members.size());
+			for (int i : members)
+				content.add(bins.get(i));
+			
+			float best = container.getUsedArea() / (container.getMaxX() * container.getMaxY());
+			
+			AlgorithmFactory<T> f = new AlgorithmFactory<T>();
+			Container<T> c;
+			if (type == ContainerType.GUILLOTINE)
+				c = f.bestScoreGuillotineFixedDimensions(content, pageWidth, pageHeight, false);
+			else
+				c = f.bestScoreMaxRectsFixedDimensions(content, pageWidth, pageHeight);
+			if (c == null || c.hasOverflow() || c.getPlacedCount() != content.size() || !(c.score() > best))
+				return;
+			
+			ArrayList<Bin<T>> placed = c.getBins();
+			for (int k = 0; k < placed.size(); k++) {
+				int j = c.getInputIndex(k);
+				x[j] = placed.get(k).getX();
+				y[j] = placed.get(k).getY();
+				turned[j] = placed.get(k).isRotated();
+			}
+			container = c;
+		}
+	
+	}
+
+}
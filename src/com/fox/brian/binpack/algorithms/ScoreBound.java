@@ -0,0 +1,73 @@
+package com.fox.brian.binpack.algorithms;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The best container score seen so far by a search, shared between the 
+ * candidates it evaluates.  Scores only ever go up.  A candidate whose 
+ * best reachable score is excluded by the bound cannot win the search 
+ * and may be abandoned.
+ */
+class ScoreBound {
+
+	/** NaN until a candidate has offered a score. */
+	private final AtomicInteger bits = new AtomicInteger(Float.floatToIntBits(Float.NaN));
+	
+	/**
+	 * True when every candidate checked against this bound comes after the 
+	 * ones that offered to it, so that a tie loses as well.  Must be false 
+	 * when candidates finish out of order, e.g. on an executor.
+	 */
+	private final boolean pruneTies;
+	
+	/** The bound of the enclosing search, or null. */
+	private final ScoreBound parent;
+	
+	
+	ScoreBound(boolean pruneTies, ScoreBound parent) {
+		this.pruneTies = pruneTies;
+		this.parent = parent;
+	}
+	
+	
+	/**
+	 * @return the best score offered so far, or NaN if there is none.
+	 */
+	float get() {
+		return Float.intBitsToFloat(bits.get());
+	}
+	
+	
+	/**
+	 * Raises the bound to the given score if it beats the current one.
+	 * NaN scores are ignored.
+	 * 
+	 * @param score
+	 */
+	void offer(float score) {
+		if (Float.isNaN(score))
+			return;
+		while (true) {
+			int current = bits.get();
+			float value = Float.intBitsToFloat(current);
+			if (!Float.isNaN(value) && !(score > value))
+				return;
+			if (bits.compareAndSet(current, Float.floatToIntBits(score)))
+				return;
+		}
+	}
+	
+	
+	/**
+	 * @param upper the best score a candidate can still reach.
+	 * @return true if such a candidate cannot win against this bound or 
+	 *         any enclosing one.
+	 */
+	boolean excludes(float upper) {
+		float value = get();
+		if (!Float.isNaN(value) && (pruneTies ? upper <= value : upper < value))
+			return true;
+		return parent != null && parent.excludes(upper);
+	}
+
+}
@@ -0,0 +1,478 @@
+package com.fox.brian.binpack.algorithms;
+
+import java.util.Arrays;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.util.Helper;
+import com.fox.brian.binpack.util.Rect;
+
+/**
+ * Implements bin packing algorithms that use the SHELF data structure: 
+ * the bin is cut into horizontal shelves, and each rectangle is put at 
+ * the end of one of them.  Only the topmost shelf is open and may grow 
+ * in height.  The gaps left above the rectangles of a shelf can be kept 
+ * in a GuillotineContainer, the waste map, when the shelf is closed, and 
+ * are filled first. 
+ * <p> 
+ * With {@link ShelfChoiceHeuristic#ShelfNextFit} and no waste map, an 
+ * insert only looks at the open shelf.  The shelves are kept in parallel 
+ * float arrays, so that an insert allocates nothing but the Rect it 
+ * returns.
+ */
+public class ShelfContainer<T> extends Container<T> {
+	
+	/*
+	 * The shelves, bottom to top: where the used space on each ends, where 
+	 * it starts, and its height.  The last one is open.
+	 */
+	private float[] shelfX = new float[16];
+	private float[] shelfY = new float[16];
+	private float[] shelfHeight = new float[16];
+	private int shelfCount = 0;
+	
+	/** The starting height of the open shelf. */
+	private float currentY;
+	
+	/** If true, the wasted areas are recovered into the waste map. */
+	private final boolean useWasteMap;
+	private GuillotineContainer<T> wasteMap;
+	
+	/*
+	 * The rectangles on the open shelf, as their left edges, widths and 
+	 * heights, kept only with a waste map.  The shelves below are closed 
+	 * and take nothing more.
+	 */
+	private float[] openX = new float[16];
+	private float[] openWidth = new float[16];
+	private float[] openHeight = new float[16];
+	private int openCount = 0;
+	
+	/** The rectangle size as turned by the last RotateToShelf call. */
+	private float turnedWidth, turnedHeight;
+	
+	
+	/**
+	 * Instantiates a bin of size (0,0) without a waste map.  Call reset to 
+	 * give it a size.
+	 */
+	public ShelfContainer() {
+		this(0, 0, false);
+	}
+	
+	
+	/**
+	 * Instantiates a bin of the given size.
+	 * 
+	 * @param binWidth
+	 * @param binHeight
+	 * @param useWasteMap if true, the gaps left above the rectangles of a 
+	 *        closed shelf are packed into as well.
+	 */
+	public ShelfContainer(float binWidth, float binHeight, boolean useWasteMap) {
+		this.useWasteMap = useWasteMap;
+		reset(binWidth, binHeight);
+	}
+	
+	
+	@Override
+	public void reset(float width, float height) {
+		binWidth = width;
+		binHeight = height;
+		
+		currentY = 0;
+		shelfCount = 0;
+		openCount = 0;
+		StartNewShelf(0);
+		
+		if (useWasteMap) {
+			if (wasteMap == null) {
+				wasteMap = new GuillotineContainer<T>(width, height, 0, 0);
+				wasteMap.allowRotation = true;
+			}
+			else
+				wasteMap.reset(width, height);
+			wasteMap.clearFreeRectangles();
+		}
+		clearPlacements();
+		setInputOrder(null);
+	}
+	
+	
+	/**
+	 * Defines the different heuristic rules that can be used to choose the 
+	 * shelf a rectangle goes on.  A rectangle that fits on none of them 
+	 * opens a new shelf.
+	 */
+	public enum ShelfChoiceHeuristic
+	{
+		/* NF: Always puts the rectangle on the open shelf. */
+		ShelfNextFit,
+		
+		/* FF: Puts the rectangle on the first shelf it fits on. */
+		ShelfFirstFit,
+		
+		/* BAF: Chooses the shelf with the smallest remaining area. */
+		ShelfBestAreaFit,
+		
+		/* WAF: Chooses the shelf with the largest remaining area. */
+		ShelfWorstAreaFit,
+		
+		/* BHF: Chooses the lowest shelf, height-wise, the rectangle fits
+		 * on. */
+		ShelfBestHeightFit,
+		
+		/* BWF: Chooses the shelf with the least width left after the
+		 * rectangle. */
+		ShelfBestWidthFit,
+		
+		/* WWF: Chooses the shelf with the most width left after the
+		 * rectangle. */
+		ShelfWorstWidthFit
+	};
+	
+	
+	/**
+	 * Inserts a single rectangle into the bin, possibly rotated.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param method The heuristic rule to use for choosing a shelf if multiple ones are possible.
+	 * @return where the rectangle went, with a height of 0 if it did not fit.
+	 */
+	public Rect Insert(float width, float height, ShelfChoiceHeuristic method) {
+		// First try to pack this rectangle into the waste map, if it fits.
+		if (useWasteMap) {
+			Rect node = wasteMap.carve(width, height, true,
+					GuillotineContainer.FreeRectChoiceHeuristic.RectBestShortSideFit,
+					GuillotineContainer.GuillotineSplitHeuristic.SplitMaximizeArea);
+			if (node != null) {
+				recordPlacement(node.x(), node.y(), node.width(), node.height());
+				return node;
+			}
+		}
+		
+		int last = shelfCount - 1;
+		int bestShelf = -1;
+		switch (method)
+		{
+			case ShelfNextFit:
+				if (FitsOnShelf(last, width, height, true))
+					bestShelf = last;
+				break;
+			
+			case ShelfFirstFit:
+				for (int i = 0; i < shelfCount; ++i)
+					if (FitsOnShelf(i, width, height, i == last))
+					{
+						bestShelf = i;
+						break;
+					}
+				break;
+			
+			case ShelfBestAreaFit:
+			{
+				// Best Area Fit rule: Choose the shelf with smallest remaining shelf area.
+				float bestShelfSurfaceArea = Float.MAX_VALUE;
+				for (int i = 0; i < shelfCount; ++i)
+				{
+					// Pre-rotate the rect onto the shelf here already so that the area fit computation
+					// is done correctly.
+					RotateToShelf(i, width, height);
+					width = turnedWidth;
+					height = turnedHeight;
+					if (FitsOnShelf(i, width, height, i == last))
+					{
+						float surfaceArea = (binWidth - shelfX[i]) * shelfHeight[i];
+						if (surfaceArea < bestShelfSurfaceArea)
+						{
+							bestShelf = i;
+							bestShelfSurfaceArea = surfaceArea;
+						}
+					}
+				}
+				break;
+			}
+			
+			case ShelfWorstAreaFit:
+			{
+				// Worst Area Fit rule: Choose the shelf with largest remaining shelf area.
+				float bestShelfSurfaceArea = -1;
+				for (int i = 0; i < shelfCount; ++i)
+				{
+					RotateToShelf(i, width, height);
+					width = turnedWidth;
+					height = turnedHeight;
+					if (FitsOnShelf(i, width, height, i == last))
+					{
+						float surfaceArea = (binWidth - shelfX[i]) * shelfHeight[i];
+						if (surfaceArea > bestShelfSurfaceArea)
+						{
+							bestShelf = i;
+							bestShelfSurfaceArea = surfaceArea;
+						}
+					}
+				}
+				break;
+			}
+			
+			case ShelfBestHeightFit:
+			{
+				// Best Height Fit rule: Choose the shelf with best-matching height.
+				float bestShelfHeightDifference = Float.MAX_VALUE;
+				for (int i = 0; i < shelfCount; ++i)
+				{
+					RotateToShelf(i, width, height);
+					width = turnedWidth;
+					height = turnedHeight;
+					if (FitsOnShelf(i, width, height, i == last))
+					{
+						float heightDifference = Helper.max(shelfHeight[i] - height, 0);
+						if (heightDifference < bestShelfHeightDifference)
+						{
+							bestShelf = i;
+							bestShelfHeightDifference = heightDifference;
+						}
+					}
+				}
+				break;
+			}
+			
+			case ShelfBestWidthFit:
+			{
+				// Best Width Fit rule: Choose the shelf with smallest remaining shelf width.
+				float bestShelfWidthDifference = Float.MAX_VALUE;
+				for (int i = 0; i < shelfCount; ++i)
+				{
+					RotateToShelf(i, width, height);
+					width = turnedWidth;
+					height = turnedHeight;
+					if (FitsOnShelf(i, width, height, i == last))
+					{
+						float widthDifference = binWidth - shelfX[i] - width;
+						if (widthDifference < bestShelfWidthDifference)
+						{
+							bestShelf = i;
+							bestShelfWidthDifference = widthDifference;
+						}
+					}
+				}
+				break;
+			}
+			
+			case ShelfWorstWidthFit:
+			{
+				// Worst Width Fit rule: Choose the shelf with largest remaining shelf width.
+				float bestShelfWidthDifference = -1;
+				for (int i = 0; i < shelfCount; ++i)
+				{
+					RotateToShelf(i, width, height);
+					width = turnedWidth;
+					height = turnedHeight;
+					if (FitsOnShelf(i, width, height, i == last))
+					{
+						float widthDifference = binWidth - shelfX[i] - width;
+						if (widthDifference > bestShelfWidthDifference)
+						{
+							bestShelf = i;
+							bestShelfWidthDifference = widthDifference;
+						}
+					}
+				}
+				break;
+			}
+		}
+		
+		if (bestShelf >= 0)
+			return AddToShelf(bestShelf, width, height);
+		
+		// The rectangle did not fit on any of the shelves. Open a new shelf.
+		
+		// Flip the rectangle so that the long side is horizontal, unless
+		// only the other way fits across the bin.
+		if (width < height && height <= binWidth)
+		{
+			float t = width;
+			width = height;
+			height = t;
+		}
+		else if (width > binWidth)
+		{
+			float t = width;
+			width = height;
+			height = t;
+		}
+		
+		if (width <= binWidth && CanStartNewShelf(height))
+		{
+			if (useWasteMap)
+				MoveShelfToWasteMap(last);
+			StartNewShelf(height);
+			return AddToShelf(shelfCount - 1, width, height);
+		}
+		
+		// The rectangle didn't fit.
+		return new Rect();
+	}
+	
+	
+	/**
+	 * Inserts a single bin into the container, possibly turned, and 
+	 * remembers it for {@link #getBins()}.
+	 * 
+	 * @param bin
+	 * @param method
+	 * @return where the bin went, with a height of 0 if it did not fit.
+	 */
+	public Rect insert(Bin<T> bin, ShelfChoiceHeuristic method) {
+		inserts++;
+		Rect newNode = Insert(bin.getWidth(), bin.getHeight(), method);
+		if (newNode.height() == 0) {
+			overflow = true;
+			return newNode;
+		}
+		recordBin(bin, newNode.x(), newNode.y(), newNode.width() != bin.getWidth());
+		return newNode;
+	}
+	
+	
+	/**
+	 * Computes the ratio of used surface area to the total bin area.
+	 * @return
+	 */
+	public float Occupancy() {
+		return occupancy();
+	}
+	
+	
+	/**
+	 * @return the number of shelves opened so far, including the open one.
+	 */
+	public int getShelfCount() {
+		return shelfCount;
+	}
+	
+	
+	/**
+	 * @return true if there is still room in the bin to start a new shelf 
+	 *         of the given height.
+	 */
+	private boolean CanStartNewShelf(float height) {
+		int last = shelfCount - 1;
+		return shelfY[last] + shelfHeight[last] + height <= binHeight;
+	}
+	
+	
+	/**
+	 * Creates a new shelf of the given starting height, which will become 
+	 * the topmost open shelf.
+	 */
+	private void StartNewShelf(float startingHeight) {
+		if (shelfCount > 0)
+			currentY += shelfHeight[shelfCount - 1];
+		
+		if (shelfCount == shelfX.length) {
+			shelfX = Arrays.copyOf(shelfX, 2 * shelfCount);
+			shelfY = Arrays.copyOf(shelfY, 2 * shelfCount);
+			shelfHeight = Arrays.copyOf(shelfHeight, 2 * shelfCount);
+		}
+		shelfX[shelfCount] = 0;
+		shelfY[shelfCount] = currentY;
+		shelfHeight[shelfCount] = startingHeight;
+		shelfCount++;
+	}
+	
+	
+	/**
+	 * @param canResize If true, denotes that the shelf height may be increased to fit the object.
+	 * @return true if the rectangle of size width*height fits on the given 
+	 *         shelf, possibly rotated.
+	 */
+	private boolean FitsOnShelf(int shelf, float width, float height, boolean canResize) {
+		float height_ = canResize ? (binHeight - shelfY[shelf]) : shelfHeight[shelf];
+		return (shelfX[shelf] + width <= binWidth && height <= height_) ||
+			(shelfX[shelf] + height <= binWidth && width <= height_);
+	}
+	
+	
+	/**
+	 * Measures and if desirable, flips width and height so that the 
+	 * rectangle fits the given shelf the best.  The result is left in 
+	 * turnedWidth and turnedHeight.
+	 */
+	private void RotateToShelf(int shelf, float width, float height) {
+		// If the width > height and the long edge of the new rectangle fits vertically onto the current shelf,
+		// flip it. If the short edge is larger than the current shelf height, store
+		// the short edge vertically.
+		if ((width > height && width > binWidth - shelfX[shelf]) ||
+			(width > height && width < shelfHeight[shelf]) ||
+			(width < height && height > shelfHeight[shelf] && height <= binWidth - shelfX[shelf]))
+		{
+			turnedWidth = height;
+			turnedHeight = width;
+		}
+		else
+		{
+			turnedWidth = width;
+			turnedHeight = height;
+		}
+	}
+	
+	
+	/**
+	 * Adds the rectangle of size width*height at the end of the given 
+	 * shelf, possibly rotated, and grows the shelf to hold it.
+	 * 
+	 * @return where the rectangle went.
+	 */
+	private Rect AddToShelf(int shelf, float width, float height) {
+		// Swap width and height if the rect fits better that way.
+		RotateToShelf(shelf, width, height);
+		width = turnedWidth;
+		height = turnedHeight;
+		
+		Rect newNode = new Rect(shelfX[shelf], shelfY[shelf], width, height);
+		if (useWasteMap && shelf == shelfCount - 1) {
+			if (openCount == openX.length) {
+				openX = Arrays.copyOf(openX, 2 * openCount);
+				openWidth = Arrays.copyOf(openWidth, 2 * openCount);
+				openHeight = Arrays.copyOf(openHeight, 2 * openCount);
+			}
+			openX[openCount] = shelfX[shelf];
+			openWidth[openCount] = width;
+			openHeight[openCount] = height;
+			openCount++;
+		}
+		
+		// Advance the shelf end position horizontally, and grow its height.
+		shelfX[shelf] += width;
+		shelfHeight[shelf] = Helper.max(shelfHeight[shelf], height);
+		
+		recordPlacement(newNode.x(), newNode.y(), width, height);
+		return newNode;
+	}
+	
+	
+	/**
+	 * Adds the gaps between the tops of the rectangles on the given shelf 
+	 * and its ceiling, and the space after its last rectangle, to the waste 
+	 * map.  This is called once, when the shelf is closed and a new one 
+	 * opened.
+	 */
+	private void MoveShelfToWasteMap(int shelf) {
+		float y = shelfY[shelf];
+		float height = shelfHeight[shelf];
+		for (int i = 0; i < openCount; ++i)
+			if (height > openHeight[i])
+				wasteMap.addFreeRectangle(openX[i], y + openHeight[i], openWidth[i], height - openHeight[i]);
+		openCount = 0;
+		
+		if (binWidth > shelfX[shelf])
+			wasteMap.addFreeRectangle(shelfX[shelf], y, binWidth - shelfX[shelf], height);
+		
+		// This shelf is DONE.
+		shelfX[shelf] = binWidth;
+		
+		wasteMap.mergeFreeList();
+	}
+
+}
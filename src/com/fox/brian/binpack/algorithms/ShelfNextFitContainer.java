@@ -0,0 +1,156 @@
+package com.fox.brian.binpack.algorithms;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.util.Helper;
+import com.fox.brian.binpack.util.Rect;
+
+/**
+ * Implements the naive Shelf Next Fit bin packer algorithm: each 
+ * rectangle goes at the end of the open shelf, and when it does not fit 
+ * there the shelf is closed for good and a new one is opened above it. 
+ * <p> 
+ * Its only advantage is that an insert takes constant time and the 
+ * container a constant amount of memory, whatever it holds, while the 
+ * other containers grow with their contents.  It suits long streams of 
+ * rectangles where throughput counts for more than density.
+ */
+public class ShelfNextFitContainer<T> extends Container<T> {
+	
+	/** Where the used space on the open shelf ends. */
+	private float currentX;
+	
+	/** The starting height of the open shelf. */
+	private float currentY;
+	
+	/** The height of the open shelf, that of its tallest rectangle. */
+	private float shelfHeight;
+	
+	
+	/**
+	 * Instantiates a bin of size (0,0).  Call reset to give it a size.
+	 */
+	public ShelfNextFitContainer() {
+		this(0, 0);
+	}
+	
+	
+	/**
+	 * Instantiates a bin of the given size.
+	 * 
+	 * @param binWidth
+	 * @param binHeight
+	 */
+	public ShelfNextFitContainer(float binWidth, float binHeight) {
+		reset(binWidth, binHeight);
+	}
+	
+	
+	@Override
+	public void reset(float width, float height) {
+		binWidth = width;
+		binHeight = height;
+		
+		currentX = 0;
+		currentY = 0;
+		shelfHeight = 0;
+		
+		clearPlacements();
+		setInputOrder(null);
+	}
+	
+	
+	/**
+	 * Inserts a single rectangle into the bin, possibly rotated.  The open 
+	 * shelf is only closed if the rectangle fits on the next one.
+	 * 
+	 * @param width
+	 * @param height
+	 * @return where the rectangle went, with a height of 0 if it did not fit.
+	 */
+	public Rect Insert(float width, float height) {
+		// There are three cases:
+		// 1. short edge <= long edge <= shelf height. Then store the long edge vertically.
+		// 2. short edge <= shelf height <= long edge. Then store the short edge vertically.
+		// 3. shelf height <= short edge <= long edge. Then store the short edge vertically.
+		
+		// If the long edge of the new rectangle fits vertically onto the current shelf,
+		// flip it. If the short edge is larger than the current shelf height, store
+		// the short edge vertically.
+		if ((width > height && width < shelfHeight) ||
+			(width < height && height > shelfHeight))
+		{
+			float t = width;
+			width = height;
+			height = t;
+		}
+		
+		float x = currentX;
+		float y = currentY;
+		if (x + width > binWidth)
+		{
+			x = 0;
+			y += shelfHeight;
+			
+			// When starting a new shelf, store the new long edge of the new rectangle horizontally
+			// to minimize the new shelf height.
+			if (width < height)
+			{
+				float t = width;
+				width = height;
+				height = t;
+			}
+		}
+		
+		// If the rectangle doesn't fit in this orientation, try flipping.
+		if (x + width > binWidth || y + height > binHeight)
+		{
+			float t = width;
+			width = height;
+			height = t;
+		}
+		
+		// If flipping didn't help, return failure.
+		if (x + width > binWidth || y + height > binHeight)
+			return new Rect();
+		
+		if (y != currentY)
+		{
+			currentY = y;
+			shelfHeight = 0;
+		}
+		currentX = x + width;
+		shelfHeight = Helper.max(shelfHeight, height);
+		
+		recordPlacement(x, y, width, height);
+		return new Rect(x, y, width, height);
+	}
+	
+	
+	/**
+	 * Inserts a single bin into the container, possibly turned, and 
+	 * remembers it for {@link #getBins()}.
+	 * 
+	 * @param bin
+	 * @return where the bin went, with a height of 0 if it did not fit.
+	 */
+	public Rect insert(Bin<T> bin) {
+		inserts++;
+		Rect newNode = Insert(bin.getWidth(), bin.getHeight());
+		if (newNode.height() == 0) {
+			overflow = true;
+			return newNode;
+		}
+		recordBin(bin, newNode.x(), newNode.y(), newNode.width() != bin.getWidth());
+		return newNode;
+	}
+	
+	
+	/**
+	 * Computes the ratio of used surface area to the total bin area.
+	 * @return
+	 */
+	public float Occupancy() {
+		return occupancy();
+	}
+
+}
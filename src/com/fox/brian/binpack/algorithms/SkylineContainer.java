@@ -0,0 +1,484 @@
+package com.fox.brian.binpack.algorithms;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.util.Helper;
+import com.fox.brian.binpack.util.Rect;
+
+/**
+ * Implements bin packing algorithms that use the SKYLINE data structure 
+ * to store the bin contents: only the outline the placed rectangles 
+ * leave towards the open end of the bin is kept, as a row of levels, so 
+ * an insert looks at a few levels rather than at free rectangles all 
+ * over the bin.  The area a placement leaves below itself can be kept in 
+ * a GuillotineContainer, the waste map, and is filled first. 
+ * <p> 
+ * The levels are kept in parallel float arrays, so that an insert 
+ * allocates nothing but the Rect it returns.
+ */
+public class SkylineContainer<T> extends Container<T> {
+	
+	/*
+	 * The levels of the skyline, left to right: where each starts, the 
+	 * height of its line, and its width.  Together they span the bin.
+	 */
+	private float[] skyX = new float[16];
+	private float[] skyY = new float[16];
+	private float[] skyWidth = new float[16];
+	private int skySize = 0;
+	
+	/** If true, the wasted areas are recovered into the waste map. */
+	private final boolean useWasteMap;
+	private GuillotineContainer<T> wasteMap;
+	
+	/**
+	 * The placement the last FindPositionForNewNode call chose, at the 
+	 * start of the level it returned, and its scores.
+	 */
+	private float placedY, placedWidth, placedHeight;
+	private float score1, score2;
+	
+	/** The height RectangleFits found the rectangle would sit at. */
+	private float fitY;
+	
+	
+	/**
+	 * Instantiates a bin of size (0,0) without a waste map.  Call reset to 
+	 * give it a size.
+	 */
+	public SkylineContainer() {
+		this(0, 0, false);
+	}
+	
+	
+	/**
+	 * Instantiates a bin of the given size.
+	 * 
+	 * @param binWidth
+	 * @param binHeight
+	 * @param useWasteMap if true, the areas left below the placed 
+	 *        rectangles are packed into as well.
+	 */
+	public SkylineContainer(float binWidth, float binHeight, boolean useWasteMap) {
+		this.useWasteMap = useWasteMap;
+		reset(binWidth, binHeight);
+	}
+	
+	
+	@Override
+	public void reset(float width, float height) {
+		binWidth = width;
+		binHeight = height;
+		
+		skySize = 1;
+		skyX[0] = 0;
+		skyY[0] = 0;
+		skyWidth[0] = width;
+		
+		if (useWasteMap) {
+			if (wasteMap == null) {
+				wasteMap = new GuillotineContainer<T>(width, height, 0, 0);
+				wasteMap.allowRotation = true;
+			}
+			else
+				wasteMap.reset(width, height);
+			wasteMap.clearFreeRectangles();
+		}
+		clearPlacements();
+		setInputOrder(null);
+	}
+	
+	
+	/**
+	 * Defines the different heuristic rules that can be used to decide how 
+	 * to make the rectangle placements.
+	 */
+	public enum LevelChoiceHeuristic
+	{
+		/* Places the rectangle where its top ends lowest, on the narrowest
+		 * level if several tie. */
+		LevelBottomLeft,
+		
+		/* Places the rectangle where it leaves the least area unused below
+		 * it, the lowest if several tie. */
+		LevelMinWasteFit
+	};
+	
+	
+	/**
+	 * Inserts the given list of rectangles in an offline/batch mode, 
+	 * possibly rotated.  The waste map is filled but not packed into.
+	 * 
+	 * @param rects The list of rectangles to insert. This list will be destroyed in the process.
+	 * @param dst [out] This list will contain the packed rectangles. The indices will not correspond to that of rects.
+	 * @param method The rectangle placement rule to use when packing.
+	 */
+	void Insert(List<Rect> rects, List<Rect> dst, LevelChoiceHeuristic method) {
+		dst.clear();
+		
+		while (rects.size() > 0)
+		{
+			float bestScore1 = Float.MAX_VALUE;
+			float bestScore2 = Float.MAX_VALUE;
+			int bestSkylineIndex = -1;
+			int bestRectIndex = -1;
+			float bestY = 0;
+			float bestWidth = 0;
+			float bestHeight = 0;
+			
+			for (int i = 0; i < rects.size(); ++i)
+			{
+				int index = FindPositionForNewNode(rects.get(i).width(), rects.get(i).height(), method);
+				if (index >= 0 && (score1 < bestScore1 || (score1 == bestScore1 && score2 < bestScore2)))
+				{
+					bestScore1 = score1;
+					bestScore2 = score2;
+					bestSkylineIndex = index;
+					bestRectIndex = i;
+					bestY = placedY;
+					bestWidth = placedWidth;
+					bestHeight = placedHeight;
+				}
+			}
+			
+			if (bestRectIndex == -1)
+				return;
+			
+			// Perform the actual packing.
+			Rect bestNode = new Rect(skyX[bestSkylineIndex], bestY, bestWidth, bestHeight);
+			AddSkylineLevel(bestSkylineIndex, bestNode.x(), bestY, bestWidth, bestHeight);
+			recordPlacement(bestNode.x(), bestY, bestWidth, bestHeight);
+			rects.remove(bestRectIndex);
+			dst.add(bestNode);
+		}
+	}
+	
+	
+	/**
+	 * Inserts a single rectangle into the bin, possibly rotated.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param method
+	 * @return where the rectangle went, with a height of 0 if it did not fit.
+	 */
+	public Rect Insert(float width, float height, LevelChoiceHeuristic method) {
+		// First try to pack this rectangle into the waste map, if it fits.
+		if (useWasteMap) {
+			Rect node = wasteMap.carve(width, height, true,
+					GuillotineContainer.FreeRectChoiceHeuristic.RectBestShortSideFit,
+					GuillotineContainer.GuillotineSplitHeuristic.SplitMaximizeArea);
+			if (node != null) {
+				recordPlacement(node.x(), node.y(), node.width(), node.height());
+				return node;
+			}
+		}
+		
+		int index = FindPositionForNewNode(width, height, method);
+		if (index < 0)
+			return new Rect();
+		
+		// Perform the actual packing.
+		Rect newNode = new Rect(skyX[index], placedY, placedWidth, placedHeight);
+		AddSkylineLevel(index, newNode.x(), placedY, placedWidth, placedHeight);
+		recordPlacement(newNode.x(), newNode.y(), newNode.width(), newNode.height());
+		return newNode;
+	}
+	
+	
+	/**
+	 * Inserts a single bin into the container, possibly turned, and 
+	 * remembers it for {@link #getBins()}.
+	 * 
+	 * @param bin
+	 * @param method
+	 * @return where the bin went, with a height of 0 if it did not fit.
+	 */
+	public Rect insert(Bin<T> bin, LevelChoiceHeuristic method) {
+		inserts++;
+		Rect newNode = Insert(bin.getWidth(), bin.getHeight(), method);
+		if (newNode.height() == 0) {
+			overflow = true;
+			return newNode;
+		}
+		recordBin(bin, newNode.x(), newNode.y(), newNode.width() != bin.getWidth());
+		return newNode;
+	}
+	
+	
+	/**
+	 * Computes the ratio of used surface area to the total bin area.
+	 * @return
+	 */
+	public float Occupancy() {
+		return occupancy();
+	}
+	
+	
+	/**
+	 * @return the number of levels the skyline is made of.
+	 */
+	public int getSkylineSize() {
+		return skySize;
+	}
+	
+	
+	/**
+	 * Finds where the given rectangle would go with the given method, 
+	 * without placing it.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param method
+	 * @return the index of the level the rectangle would start on, or -1 
+	 *         if it fits nowhere.  Its height and size, swapped if turned, 
+	 *         are left in placedY, placedWidth and placedHeight, and its 
+	 *         scores in score1 and score2, smaller being better.
+	 */
+	private int FindPositionForNewNode(float width, float height, LevelChoiceHeuristic method) {
+		switch (method)
+		{
+			case LevelBottomLeft:
+				return FindPositionForNewNodeBottomLeft(width, height);
+			case LevelMinWasteFit:
+				return FindPositionForNewNodeMinWaste(width, height);
+			default:
+				return -1;
+		}
+	}
+	
+	
+	/**
+	 * Leaves the height of the top of the rectangle in score1, and the 
+	 * width of the level it starts on in score2, to break ties in favour 
+	 * of the narrowest one.
+	 */
+	private int FindPositionForNewNodeBottomLeft(float width, float height) {
+		int bestIndex = -1;
+		score1 = Float.MAX_VALUE;
+		score2 = Float.MAX_VALUE;
+		
+		for (int i = 0; i < skySize; ++i)
+		{
+			if (RectangleFits(i, width, height))
+			{
+				if (fitY + height < score1 || (fitY + height == score1 && skyWidth[i] < score2))
+				{
+					bestIndex = i;
+					placedY = fitY;
+					placedWidth = width;
+					placedHeight = height;
+					score1 = fitY + height;
+					score2 = skyWidth[i];
+				}
+			}
+			if (RectangleFits(i, height, width))
+			{
+				if (fitY + width < score1 || (fitY + width == score1 && skyWidth[i] < score2))
+				{
+					bestIndex = i;
+					placedY = fitY;
+					placedWidth = height;
+					placedHeight = width;
+					score1 = fitY + width;
+					score2 = skyWidth[i];
+				}
+			}
+		}
+		return bestIndex;
+	}
+	
+	
+	/**
+	 * Leaves the area the rectangle would waste below itself in score1, 
+	 * and the height of its top in score2.
+	 */
+	private int FindPositionForNewNodeMinWaste(float width, float height) {
+		int bestIndex = -1;
+		score1 = Float.MAX_VALUE;
+		score2 = Float.MAX_VALUE;
+		
+		for (int i = 0; i < skySize; ++i)
+		{
+			if (RectangleFits(i, width, height))
+			{
+				float wastedArea = ComputeWastedArea(i, width, fitY);
+				if (wastedArea < score1 || (wastedArea == score1 && fitY + height < score2))
+				{
+					bestIndex = i;
+					placedY = fitY;
+					placedWidth = width;
+					placedHeight = height;
+					score1 = wastedArea;
+					score2 = fitY + height;
+				}
+			}
+			if (RectangleFits(i, height, width))
+			{
+				float wastedArea = ComputeWastedArea(i, height, fitY);
+				if (wastedArea < score1 || (wastedArea == score1 && fitY + width < score2))
+				{
+					bestIndex = i;
+					placedY = fitY;
+					placedWidth = height;
+					placedHeight = width;
+					score1 = wastedArea;
+					score2 = fitY + width;
+				}
+			}
+		}
+		return bestIndex;
+	}
+	
+	
+	/**
+	 * Tests whether a rectangle starting on the given level fits in the 
+	 * bin.  It rests on the highest of the levels it spans.
+	 * 
+	 * @param skylineNodeIndex
+	 * @param width
+	 * @param height
+	 * @return true if it fits, with the height it rests at left in fitY.
+	 */
+	private boolean RectangleFits(int skylineNodeIndex, float width, float height) {
+		float x = skyX[skylineNodeIndex];
+		if (x + width > binWidth)
+			return false;
+		float widthLeft = width;
+		int i = skylineNodeIndex;
+		float y = skyY[skylineNodeIndex];
+		while (widthLeft > 0)
+		{
+			// Rounding can leave a sliver past the last level.
+			if (i == skySize)
+				return false;
+			y = Helper.max(y, skyY[i]);
+			if (y + height > binHeight)
+				return false;
+			widthLeft -= skyWidth[i];
+			++i;
+		}
+		fitY = y;
+		return true;
+	}
+	
+	
+	/**
+	 * @return the area between the levels a rectangle of the given width 
+	 *         spans and the bottom of the rectangle, at height y.
+	 */
+	private float ComputeWastedArea(int skylineNodeIndex, float width, float y) {
+		float wastedArea = 0;
+		float rectLeft = skyX[skylineNodeIndex];
+		float rectRight = rectLeft + width;
+		for (; skylineNodeIndex < skySize && skyX[skylineNodeIndex] < rectRight; ++skylineNodeIndex)
+		{
+			if (skyX[skylineNodeIndex] + skyWidth[skylineNodeIndex] <= rectLeft)
+				break;
+			
+			float leftSide = skyX[skylineNodeIndex];
+			float rightSide = Helper.min(rectRight, leftSide + skyWidth[skylineNodeIndex]);
+			wastedArea += (rightSide - leftSide) * (y - skyY[skylineNodeIndex]);
+		}
+		return wastedArea;
+	}
+	
+	
+	/**
+	 * Adds the areas between the levels a rectangle of the given width 
+	 * spans and the bottom of the rectangle, at height y, to the waste 
+	 * map.  Levels the rectangle rests on directly leave no area, and are 
+	 * not added as empty rectangles.
+	 */
+	private void AddWasteMapArea(int skylineNodeIndex, float width, float y) {
+		float rectLeft = skyX[skylineNodeIndex];
+		float rectRight = rectLeft + width;
+		for (; skylineNodeIndex < skySize && skyX[skylineNodeIndex] < rectRight; ++skylineNodeIndex)
+		{
+			if (skyX[skylineNodeIndex] + skyWidth[skylineNodeIndex] <= rectLeft)
+				break;
+			
+			float leftSide = skyX[skylineNodeIndex];
+			float rightSide = Helper.min(rectRight, leftSide + skyWidth[skylineNodeIndex]);
+			if (y > skyY[skylineNodeIndex])
+				wasteMap.addFreeRectangle(leftSide, skyY[skylineNodeIndex], rightSide - leftSide, y - skyY[skylineNodeIndex]);
+		}
+	}
+	
+	
+	/**
+	 * Raises the skyline under a rectangle placed at the start of the given 
+	 * level.
+	 */
+	private void AddSkylineLevel(int skylineNodeIndex, float x, float y, float width, float height) {
+		// First track all wasted areas and mark them into the waste map if we're using one.
+		if (useWasteMap)
+			AddWasteMapArea(skylineNodeIndex, width, y);
+		
+		insertLevel(skylineNodeIndex, x, y + height, width);
+		
+		// Cut the levels the new one covers back to where it ends.
+		for (int i = skylineNodeIndex + 1; i < skySize; ++i)
+		{
+			if (skyX[i] < skyX[i-1] + skyWidth[i-1])
+			{
+				float shrink = skyX[i-1] + skyWidth[i-1] - skyX[i];
+				
+				skyX[i] += shrink;
+				skyWidth[i] -= shrink;
+				
+				if (skyWidth[i] <= 0)
+				{
+					removeLevel(i);
+					--i;
+				}
+				else
+					break;
+			}
+			else
+				break;
+		}
+		MergeSkylines();
+	}
+	
+	
+	/**
+	 * Merges all skyline levels that are at the same height.
+	 */
+	private void MergeSkylines() {
+		for (int i = 0; i < skySize - 1; ++i)
+			if (skyY[i] == skyY[i+1])
+			{
+				skyWidth[i] += skyWidth[i+1];
+				removeLevel(i + 1);
+				--i;
+			}
+	}
+	
+	
+	private void insertLevel(int i, float x, float y, float width) {
+		if (skySize == skyX.length) {
+			skyX = Arrays.copyOf(skyX, 2 * skySize);
+			skyY = Arrays.copyOf(skyY, 2 * skySize);
+			skyWidth = Arrays.copyOf(skyWidth, 2 * skySize);
+		}
+		System.arraycopy(skyX, i, skyX, i + 1, skySize - i);
+		System.arraycopy(skyY, i, skyY, i + 1, skySize - i);
+		System.arraycopy(skyWidth, i, skyWidth, i + 1, skySize - i);
+		skyX[i] = x;
+		skyY[i] = y;
+		skyWidth[i] = width;
+		skySize++;
+	}
+	
+	
+	private void removeLevel(int i) {
+		skySize--;
+		System.arraycopy(skyX, i + 1, skyX, i, skySize - i);
+		System.arraycopy(skyY, i + 1, skyY, i, skySize - i);
+		System.arraycopy(skyWidth, i + 1, skyWidth, i, skySize - i);
+	}
+
+}
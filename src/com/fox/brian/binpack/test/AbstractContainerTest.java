@@ -0,0 +1,61 @@
+package com.fox.brian.binpack.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.Container;
+
+/**
+ * The fixture and the layout checks the container tests share.  The 
+ * AbstractTest of each test package extends it.
+ */
+public class AbstractContainerTest {
+	
+	/**
+	 * @return bins of assorted sizes up to 23x29.
+	 */
+	protected ArrayList<Bin<Integer>> bins(int count) {
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>();
+		for (int i = 0; i < count; i++)
+			bins.add(new Bin<Integer>(new Integer(i), 1 + (i * 37) % 23, 1 + (i * 11) % 29, "Dummy value"));
+		return bins;
+	}
+	
+	/**
+	 * Checks that no bin lies left of or above the origin, and that no two 
+	 * bins overlap.
+	 */
+	protected void assertApart(ArrayList<Bin<Integer>> placed) {
+		for (int i = 0; i < placed.size(); i++) {
+			Bin<Integer> a = placed.get(i);
+			assertTrue(a.getX() >= 0 && a.getY() >= 0);
+			for (int j = 0; j < i; j++) {
+				Bin<Integer> b = placed.get(j);
+				assertFalse("Bins " + i + " and " + j + " overlap",
+						a.getX() < b.getX() + b.getWidth() && b.getX() < a.getX() + a.getWidth()
+						&& a.getY() < b.getY() + b.getHeight() && b.getY() < a.getY() + a.getHeight());
+			}
+		}
+	}
+	
+	/**
+	 * Checks that the placed bins lie inside the container and apart, and 
+	 * that their area adds up to the used area of the container.
+	 */
+	protected void assertValid(Container<Integer> bin) {
+		ArrayList<Bin<Integer>> placed = bin.getBins();
+		assertApart(placed);
+		float area = 0;
+		for (Bin<Integer> a : placed) {
+			area += a.getWidth() * a.getHeight();
+			assertTrue(a.getX() + a.getWidth() <= bin.getBinWidth());
+			assertTrue(a.getY() + a.getHeight() <= bin.getBinHeight());
+		}
+		assertEquals(area, bin.getUsedArea(), 0.001);
+	}
+
+}
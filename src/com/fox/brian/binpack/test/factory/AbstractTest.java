@@ -0,0 +1,58 @@
+package com.fox.brian.binpack.test.factory;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.BinPack;
+import com.fox.brian.binpack.test.AbstractContainerTest;
+
+public class AbstractTest extends AbstractContainerTest {
+
+	/**
+	 * @return a pack of bins whose widths alternate between growing and 
+	 *         shrinking, with a handful of different heights.
+	 */
+	protected BinPack<Integer> wavy(int count) {
+		BinPack<Integer> pack = new BinPack<Integer>();
+		for (Bin<Integer> b : wavyBins(count))
+			pack.addObject(b);
+		return pack;
+	}
+
+	/**
+	 * @return the bins of {@link #wavy(int)}, unplaced.
+	 */
+	protected ArrayList<Bin<Integer>> wavyBins(int count) {
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>(count);
+		for (int i = 0; i < count; i++)
+			bins.add(new Bin<Integer>(new Integer(i), (i%2 == 0) ? i + 1 : count - i, 1 + (i * 7) % 13, "Dummy value"));
+		return bins;
+	}
+
+	/**
+	 * @return the used area over the bounding box of the bins.
+	 */
+	protected float score(ArrayList<Bin<Integer>> bins) {
+		float maxx = 0;
+		float maxy = 0;
+		float area = 0;
+		for (Bin<Integer> b : bins) {
+			maxx = Math.max(maxx, b.getX() + b.getWidth());
+			maxy = Math.max(maxy, b.getY() + b.getHeight());
+			area += b.getWidth() * b.getHeight();
+		}
+		return area / (maxx * maxy);
+	}
+	
+	protected void assertSameLayout(ArrayList<Bin<Integer>> expected, ArrayList<Bin<Integer>> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getObject(), actual.get(i).getObject());
+			assertEquals(expected.get(i).getX(), actual.get(i).getX(), 0);
+			assertEquals(expected.get(i).getY(), actual.get(i).getY(), 0);
+		}
+	}
+
+}
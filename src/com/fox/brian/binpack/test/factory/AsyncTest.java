@@ -0,0 +1,119 @@
+package com.fox.brian.binpack.test.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.BinPack;
+import com.fox.brian.binpack.algorithms.AlgorithmFactory;
+import com.fox.brian.binpack.util.PackExecutors;
+
+public class AsyncTest extends AbstractTest {
+
+	@Test
+	public void asyncMatchesSynchronous() throws Exception {
+		BinPack<Integer> pack = wavy(30);
+		ArrayList<Bin<Integer>> expected = pack.pack(false);
+		ArrayList<Bin<Integer>> actual = pack.packAsync(false).get(1, TimeUnit.MINUTES);
+		assertSameLayout(expected, actual);
+	}
+
+	@Test
+	public void manyRequestsShareTheComputePool() throws Exception {
+		ExecutorService compute = Executors.newFixedThreadPool(2);
+		try {
+			ArrayList<CompletableFuture<ArrayList<Bin<Integer>>>> futures = new ArrayList<CompletableFuture<ArrayList<Bin<Integer>>>>();
+			for (int i = 0; i < 50; i++) {
+				Executor direct = new Executor() {
+					@Override
+					public void execute(Runnable command) {
+						new Thread(command).start();
+					}
+				};
+				futures.add(wavy(10 + i % 5).packAsync(false, direct, compute));
+			}
+			for (int i = 0; i < futures.size(); i++)
+				assertEquals(10 + i % 5, futures.get(i).get(1, TimeUnit.MINUTES).size());
+		} finally {
+			compute.shutdown();
+		}
+	}
+
+	@Test
+	public void cancellingStopsTheSearch() throws Exception {
+		// The twentieth packing is held until the future is cancelled, so 
+		// the search is well under way then and cannot have finished.
+		final CountDownLatch started = new CountDownLatch(20);
+		final CountDownLatch cancelled = new CountDownLatch(1);
+		ExecutorService compute = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()) {
+			@Override
+			protected void beforeExecute(Thread t, Runnable r) {
+				started.countDown();
+				if (started.getCount() > 0)
+					return;
+				try {
+					cancelled.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		ExecutorService requests = Executors.newSingleThreadExecutor();
+		try {
+			BinPack<Integer> pack = wavy(400);
+			pack.setSearchStrategy(AlgorithmFactory.SearchStrategy.SLIDING);
+			CompletableFuture<ArrayList<Bin<Integer>>> future = pack.packAsync(false, requests, compute);
+			assertTrue(started.await(1, TimeUnit.MINUTES));
+			future.cancel(true);
+			cancelled.countDown();
+			assertTrue(future.isCancelled());
+			
+			// The search notices the token between packings, and the 
+			// request ends having recorded how far it got.  A whole sliding 
+			// search tries 740 sizes.
+			requests.shutdown();
+			assertTrue(requests.awaitTermination(1, TimeUnit.MINUTES));
+			assertTrue("Search tried " + pack.getSizesEvaluated() + " sizes", 
+					pack.getSizesEvaluated() > 0 && pack.getSizesEvaluated() < 740);
+		} finally {
+			requests.shutdownNow();
+			compute.shutdownNow();
+		}
+	}
+
+	@Test
+	public void rejectedRequestFailsTheFuture() throws Exception {
+		Executor rejecting = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException();
+			}
+		};
+		CompletableFuture<ArrayList<Bin<Integer>>> future = wavy(10).packAsync(false, rejecting, PackExecutors.compute());
+		try {
+			future.get();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+			return;
+		} catch (CancellationException e) {
+		}
+		fail("The future should have failed");
+	}
+
+}
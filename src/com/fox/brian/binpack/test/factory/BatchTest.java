@@ -0,0 +1,69 @@
+package com.fox.brian.binpack.test.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.BatchPacker;
+import com.fox.brian.binpack.BatchResult;
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.BinPack;
+
+public class BatchTest extends AbstractTest {
+
+	@Test
+	public void layoutsComeBackInJobOrder() {
+		ArrayList<ArrayList<Bin<Integer>>> jobs = new ArrayList<ArrayList<Bin<Integer>>>();
+		for (int i = 0; i < 20; i++)
+			jobs.add(wavyBins(5 + i));
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			BatchResult<Integer> result = new BatchPacker<Integer>(executor).pack(jobs, false);
+			assertEquals(20, result.size());
+			for (int i = 0; i < 20; i++) {
+				// Each layout matches a pack of the job on its own.
+				assertSameLayout(wavy(5 + i).pack(false), result.getLayout(i));
+				assertTrue(result.getLatencyNanos(i) > 0);
+			}
+			assertTrue(result.getJobsPerSecond() > 0);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void percentilesFollowTheLatencies() {
+		ArrayList<ArrayList<Bin<Integer>>> layouts = new ArrayList<ArrayList<Bin<Integer>>>();
+		for (int i = 0; i < 4; i++)
+			layouts.add(new ArrayList<Bin<Integer>>());
+		BatchResult<Integer> result = new BatchResult<Integer>(layouts, new long[] { 40, 10, 30, 20 }, 1000000000L);
+		assertEquals(10, result.getLatencyPercentile(0));
+		assertEquals(20, result.getLatencyPercentile(50));
+		assertEquals(40, result.getLatencyPercentile(99));
+		assertEquals(40, result.getLatencyPercentile(100));
+		assertEquals(4.0, result.getJobsPerSecond(), 1e-9);
+	}
+
+	@Test
+	public void oneWorkerPacksEveryJobAlike() {
+		BinPack<Integer> single = wavy(12);
+		ArrayList<ArrayList<Bin<Integer>>> jobs = new ArrayList<ArrayList<Bin<Integer>>>();
+		for (int i = 0; i < 10; i++)
+			jobs.add(wavyBins(12));
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			BatchResult<Integer> result = new BatchPacker<Integer>(executor).pack(jobs, false);
+			for (int i = 0; i < 10; i++)
+				assertSameLayout(single.pack(false), result.getLayout(i));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.fox.brian.binpack.test.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.BinPack;
+import com.fox.brian.binpack.PackCache;
+
+public class CacheTest extends AbstractTest {
+
+	@Test
+	public void repeatedSizesHitTheCache() {
+		PackCache cache = new PackCache(4);
+		
+		BinPack<Integer> first = wavy(20);
+		first.setCache(cache);
+		ArrayList<Bin<Integer>> expected = first.pack(false);
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		
+		BinPack<Integer> second = wavy(20);
+		second.setCache(cache);
+		ArrayList<Bin<Integer>> actual = second.pack(false);
+		assertEquals(1, cache.getHits());
+		assertEquals(0, second.getPackingsEvaluated());
+		assertSameLayout(expected, actual);
+	}
+
+	@Test
+	public void layoutIsRemappedOntoNewObjects() {
+		PackCache cache = new PackCache(4);
+		
+		BinPack<Integer> first = wavy(10);
+		first.setCache(cache);
+		ArrayList<Bin<Integer>> expected = first.pack(false);
+		
+		BinPack<Integer> second = new BinPack<Integer>();
+		second.setCache(cache);
+		ArrayList<Integer> objects = new ArrayList<Integer>();
+		for (Bin<Integer> b : expected) {
+			Integer object = new Integer(b.getObject().intValue() + 100);
+			objects.add(object);
+			second.addObject(object, b.getWidth(), b.getHeight(), "Other value");
+		}
+		ArrayList<Bin<Integer>> actual = second.pack(false);
+		assertEquals(1, cache.getHits());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSame(objects.get(i), actual.get(i).getObject());
+			assertEquals(expected.get(i).getX(), actual.get(i).getX(), 0);
+			assertEquals(expected.get(i).getY(), actual.get(i).getY(), 0);
+		}
+	}
+
+	@Test
+	public void leastRecentlyUsedIsEvicted() {
+		PackCache cache = new PackCache(1);
+		for (int count : new int[]{5, 6, 5}) {
+			BinPack<Integer> pack = wavy(count);
+			pack.setCache(cache);
+			pack.pack(false);
+		}
+		assertEquals(0, cache.getHits());
+		assertEquals(3, cache.getMisses());
+		assertEquals(2, cache.getEvictions());
+		assertEquals(1, cache.size());
+	}
+
+}
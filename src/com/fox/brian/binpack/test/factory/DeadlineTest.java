@@ -0,0 +1,67 @@
+package com.fox.brian.binpack.test.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.BinPack;
+import com.fox.brian.binpack.PackResult;
+import com.fox.brian.binpack.algorithms.AlgorithmFactory;
+import com.fox.brian.binpack.util.CancellationToken;
+
+public class DeadlineTest extends AbstractTest {
+
+	@Test
+	public void generousBudgetCompletes() {
+		BinPack<Integer> pack = wavy(20);
+		PackResult<Integer> result = pack.pack(false, 1, TimeUnit.MINUTES, null);
+		assertTrue(result.isComplete());
+		assertTrue(result.hasLayout());
+		assertEquals(20, result.getBins().size());
+	}
+
+	@Test
+	public void cancelledTokenStopsAtOnce() {
+		BinPack<Integer> pack = wavy(20);
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+		PackResult<Integer> result = pack.pack(false, 1, TimeUnit.MINUTES, token);
+		assertFalse(result.isComplete());
+		assertFalse(result.hasLayout());
+		assertEquals(0, pack.getSizesEvaluated());
+	}
+
+	@Test
+	public void expiredBudgetReturnsBestSoFar() {
+		BinPack<Integer> pack = wavy(400);
+		pack.setSearchStrategy(AlgorithmFactory.SearchStrategy.SLIDING);
+		long start = System.nanoTime();
+		PackResult<Integer> result = pack.pack(false, 200, TimeUnit.MILLISECONDS, null);
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertFalse(result.isComplete());
+		assertTrue("Search ran " + elapsed + "ms", elapsed < 2000);
+		if (result.hasLayout())
+			assertEquals(400, result.getBins().size());
+	}
+
+	@Test
+	public void interruptedPackThrows() {
+		BinPack<Integer> pack = wavy(20);
+		Thread.currentThread().interrupt();
+		try {
+			pack.pack(false);
+			fail("An interrupted pack returned a layout");
+		} catch (CancellationException e) {
+			assertTrue(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
+}
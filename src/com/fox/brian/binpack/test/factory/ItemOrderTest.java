@@ -0,0 +1,59 @@
+package com.fox.brian.binpack.test.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.BinPack;
+import com.fox.brian.binpack.algorithms.ItemOrder;
+
+public class ItemOrderTest extends AbstractTest {
+
+	@Test
+	public void binsComeBackInInputOrder() {
+		BinPack<Integer> pack = wavy(40);
+		pack.setItemOrders(ItemOrder.AREA_DESC, ItemOrder.HEIGHT_DESC);
+		ArrayList<Bin<Integer>> bins = pack.pack(false);
+		assertEquals(40, bins.size());
+		for (int i = 0; i < bins.size(); i++)
+			assertEquals(new Integer(i), bins.get(i).getObject());
+	}
+
+	@Test
+	public void moreOrdersPackAtLeastAsDensely() {
+		BinPack<Integer> pack = wavy(40);
+
+		pack.setItemOrders(ItemOrder.ORIGINAL);
+		float original = score(pack.pack(false));
+
+		pack.setItemOrders((ItemOrder[]) null);
+		float all = score(pack.pack(false));
+
+		assertTrue("Item orders lost density: " + all + " < " + original, all >= original);
+	}
+
+	@Test
+	public void sortIsStableAndDescending() {
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>();
+		bins.add(new Bin<Integer>(new Integer(0), 2, 2, "Dummy value"));
+		bins.add(new Bin<Integer>(new Integer(1), 3, 3, "Dummy value"));
+		bins.add(new Bin<Integer>(new Integer(2), 1, 4, "Dummy value"));
+		bins.add(new Bin<Integer>(new Integer(3), 4, 1, "Dummy value"));
+
+		int[] area = ItemOrder.AREA_DESC.sort(bins);
+		// The last three tie on area, so they keep their order.
+		assertEquals(1, area[0]);
+		assertEquals(0, area[1]);
+		assertEquals(2, area[2]);
+		assertEquals(3, area[3]);
+
+		int[] original = ItemOrder.ORIGINAL.sort(bins);
+		for (int i = 0; i < original.length; i++)
+			assertEquals(i, original[i]);
+	}
+
+}
@@ -0,0 +1,107 @@
+package com.fox.brian.binpack.test.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.BinPack;
+import com.fox.brian.binpack.algorithms.ContainerType;
+import com.fox.brian.binpack.algorithms.PagePacker;
+
+public class PageTest extends AbstractTest {
+
+	@Test
+	public void guillotinePagesHoldEveryBin() {
+		BinPack<Integer> pack = wavy(60);
+		assertValidPages(pack.packPages(64, 32), 60, 64, 32);
+	}
+
+	@Test
+	public void maxRectsPagesHoldEveryBin() {
+		BinPack<Integer> pack = wavy(60);
+		assertValidPages(pack.packPages(64, 32, ContainerType.MAXRECTS, null), 60, 64, 32);
+	}
+
+	@Test
+	public void shelfPagesHoldEveryBin() {
+		BinPack<Integer> pack = wavy(60);
+		assertValidPages(pack.packPages(64, 32, ContainerType.SHELF, null), 60, 64, 32);
+		assertValidPages(pack.packPages(64, 32, ContainerType.SHELF_NEXT_FIT, null), 60, 64, 32);
+	}
+
+	@Test
+	public void parallelPagesMatchSequential() throws Exception {
+		BinPack<Integer> pack = wavy(60);
+		ArrayList<Bin<Integer>> sequential = pack.packPages(64, 32);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ArrayList<Bin<Integer>> parallel = pack.packPages(64, 32, ContainerType.GUILLOTINE, executor);
+			assertSameLayout(sequential, parallel);
+			for (int i = 0; i < sequential.size(); i++)
+				assertEquals(sequential.get(i).getPage(), parallel.get(i).getPage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void lastPageIsPulledOntoEarlierPages() {
+		// Dealt out first fit, these need one page more than they end up on.
+		ArrayList<Bin<Integer>> bins = bins(35);
+		PagePacker<Integer> guillotine = new PagePacker<Integer>(48, 48, ContainerType.GUILLOTINE);
+		ArrayList<Bin<Integer>> pages = guillotine.pack(bins);
+		assertValidPages(pages, 35, 48, 48);
+		assertEquals(3, guillotine.getPageCount());
+		assertEquals(3, pageCount(pages));
+		
+		PagePacker<Integer> maxRects = new PagePacker<Integer>(56, 56, ContainerType.MAXRECTS);
+		pages = maxRects.pack(bins);
+		assertValidPages(pages, 35, 56, 56);
+		assertEquals(2, maxRects.getPageCount());
+		assertEquals(2, pageCount(pages));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void oversizeBinIsRejected() {
+		BinPack<Integer> pack = wavy(10);
+		pack.addObject(new Integer(10), 100, 1, "Dummy value");
+		pack.packPages(64, 32);
+	}
+
+	private int pageCount(ArrayList<Bin<Integer>> bins) {
+		int pages = 0;
+		for (Bin<Integer> b : bins)
+			pages = Math.max(pages, b.getPage() + 1);
+		return pages;
+	}
+
+	private void assertValidPages(ArrayList<Bin<Integer>> bins, int count, float width, float height) {
+		assertEquals(count, bins.size());
+		float area = 0;
+		int pages = 0;
+		for (int i = 0; i < bins.size(); i++) {
+			Bin<Integer> a = bins.get(i);
+			assertEquals(new Integer(i), a.getObject());
+			assertTrue(a.getX() >= 0 && a.getX() + a.getWidth() <= width);
+			assertTrue(a.getY() >= 0 && a.getY() + a.getHeight() <= height);
+			area += a.getWidth() * a.getHeight();
+			pages = Math.max(pages, a.getPage() + 1);
+			for (int j = 0; j < i; j++) {
+				Bin<Integer> b = bins.get(j);
+				if (a.getPage() == b.getPage())
+					assertFalse("Bins " + i + " and " + j + " overlap",
+							a.getX() < b.getX() + b.getWidth() && b.getX() < a.getX() + a.getWidth()
+							&& a.getY() < b.getY() + b.getHeight() && b.getY() < a.getY() + a.getHeight());
+			}
+		}
+		assertTrue("Used " + pages + " pages", pages <= 2 * Math.ceil(area / (width * height)));
+	}
+
+}
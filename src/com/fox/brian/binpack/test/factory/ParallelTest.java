@@ -0,0 +1,41 @@
+package com.fox.brian.binpack.test.factory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.BinPack;
+import com.fox.brian.binpack.algorithms.AlgorithmFactory;
+
+public class ParallelTest extends AbstractTest {
+
+	@Test
+	public void forkJoinMatchesSequential() {
+		BinPack<Integer> pack = wavy(30);
+		assertSameLayout(pack.pack(false), pack.packParallel(false));
+	}
+
+	@Test
+	public void executorMatchesSequential() {
+		BinPack<Integer> pack = wavy(30);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			assertSameLayout(pack.pack(false), pack.pack(false, executor));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void heuristicsMatchSequential() {
+		BinPack<Integer> pack = wavy(30);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			assertSameLayout(pack.pack(false), pack.pack(false, executor, AlgorithmFactory.Parallelism.HEURISTICS));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
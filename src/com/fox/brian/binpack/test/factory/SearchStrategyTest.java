@@ -0,0 +1,44 @@
+package com.fox.brian.binpack.test.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.BinPack;
+import com.fox.brian.binpack.algorithms.AlgorithmFactory;
+
+public class SearchStrategyTest extends AbstractTest {
+
+	@Test
+	public void adaptiveTriesFewerSizes() {
+		BinPack<Integer> pack = wavy(40);
+		
+		pack.setSearchStrategy(AlgorithmFactory.SearchStrategy.SLIDING);
+		ArrayList<Bin<Integer>> sliding = pack.pack(false);
+		long slidingSizes = pack.getSizesEvaluated();
+		
+		pack.setSearchStrategy(AlgorithmFactory.SearchStrategy.ADAPTIVE);
+		ArrayList<Bin<Integer>> adaptive = pack.pack(false);
+		long adaptiveSizes = pack.getSizesEvaluated();
+		
+		assertEquals(40, adaptive.size());
+		assertTrue("Adaptive search tried " + adaptiveSizes + " sizes", adaptiveSizes * 5 < slidingSizes);
+		assertTrue("Adaptive search lost density", score(adaptive) > 0.9 * score(sliding));
+	}
+
+	@Test
+	public void adaptiveSkipsInfeasibleSizes() {
+		// One bin is wider than all of the vertical strips.
+		BinPack<Integer> pack = wavy(10);
+		pack.addObject(new Integer(10), 2000, 1, "Dummy value");
+		ArrayList<Bin<Integer>> bins = pack.pack(false);
+		assertEquals(11, bins.size());
+		for (Bin<Integer> b : bins)
+			assertTrue(b.getX() >= 0 && b.getY() >= 0);
+	}
+
+}
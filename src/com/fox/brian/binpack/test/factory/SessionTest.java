@@ -0,0 +1,100 @@
+package com.fox.brian.binpack.test.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.PackSession;
+import com.fox.brian.binpack.algorithms.ContainerType;
+
+public class SessionTest extends AbstractTest {
+
+	private void fill(PackSession<Integer> session, int count) {
+		for (Bin<Integer> b : wavyBins(count))
+			session.add(b);
+	}
+
+	private void assertNoOverlap(ArrayList<Bin<Integer>> bins) {
+		for (int i = 0; i < bins.size(); i++)
+			assertEquals(new Integer(i), bins.get(i).getObject());
+		assertApart(bins);
+	}
+
+	@Test
+	public void guillotineSessionSearchesRarely() {
+		PackSession<Integer> session = new PackSession<Integer>(ContainerType.GUILLOTINE);
+		fill(session, 60);
+		assertEquals(60, session.size());
+		assertNoOverlap(session.getLayout());
+		assertTrue("Searched " + session.getSearchCount() + " times", session.getSearchCount() < 30);
+	}
+
+	@Test
+	public void maxRectsSessionSearchesRarely() {
+		PackSession<Integer> session = new PackSession<Integer>(ContainerType.MAXRECTS);
+		fill(session, 60);
+		assertNoOverlap(session.getLayout());
+		assertTrue("Searched " + session.getSearchCount() + " times", session.getSearchCount() < 30);
+	}
+
+	@Test
+	public void strictThresholdKeepsTheDensity() {
+		PackSession<Integer> loose = new PackSession<Integer>(ContainerType.GUILLOTINE);
+		loose.setDensityThreshold(0);
+		fill(loose, 40);
+
+		PackSession<Integer> strict = new PackSession<Integer>(ContainerType.GUILLOTINE);
+		strict.setDensityThreshold(1);
+		fill(strict, 40);
+
+		assertNoOverlap(loose.getLayout());
+		assertNoOverlap(strict.getLayout());
+		assertTrue(loose.getSearchCount() <= strict.getSearchCount());
+		assertEquals(score(strict.getLayout()), strict.getDensity(), 1e-4);
+	}
+
+	@Test
+	public void addReportsWhetherTheLayoutMoved() {
+		PackSession<Integer> session = new PackSession<Integer>(ContainerType.GUILLOTINE);
+		session.setDensityThreshold(0);
+		fill(session, 30);
+		session.search();
+		int searches = session.getSearchCount();
+		ArrayList<Bin<Integer>> before = session.getLayout();
+		
+		assertTrue(session.add(new Bin<Integer>(new Integer(30), 1, 1, "Dummy value")));
+		assertSameLayout(before, new ArrayList<Bin<Integer>>(session.getLayout().subList(0, 30)));
+		assertEquals(searches, session.getSearchCount());
+	}
+
+	@Test
+	public void interruptedSearchKeepsTheLayout() {
+		for (ContainerType type : new ContainerType[] { ContainerType.GUILLOTINE, ContainerType.MAXRECTS }) {
+			PackSession<Integer> session = new PackSession<Integer>(type);
+			fill(session, 30);
+			ArrayList<Bin<Integer>> before = session.getLayout();
+			
+			Thread.currentThread().interrupt();
+			try {
+				session.add(new Bin<Integer>(new Integer(30), 1000, 1000, "Dummy value"));
+				fail("An interrupted session searched to the end");
+			} catch (CancellationException e) {
+				assertTrue(Thread.currentThread().isInterrupted());
+			} finally {
+				Thread.interrupted();
+			}
+			assertEquals(30, session.size());
+			assertSameLayout(before, session.getLayout());
+			
+			session.add(new Bin<Integer>(new Integer(30), 1, 1, "Dummy value"));
+			assertNoOverlap(session.getLayout());
+		}
+	}
+
+}
@@ -2,9 +2,10 @@ package com.fox.brian.binpack.test.guillotine;
 
 import com.fox.brian.binpack.Bin;
 import com.fox.brian.binpack.algorithms.GuillotineContainer;
+import com.fox.brian.binpack.test.AbstractContainerTest;
 import com.fox.brian.binpack.util.Rect;
 
-public class AbstractTest {
+public class AbstractTest extends AbstractContainerTest {
 
 	protected boolean merge = false;
 	
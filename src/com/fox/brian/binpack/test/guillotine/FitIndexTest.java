@@ -0,0 +1,84 @@
+package com.fox.brian.binpack.test.guillotine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.GuillotineContainer;
+import com.fox.brian.binpack.algorithms.GuillotineContainer.FitIndex;
+import com.fox.brian.binpack.algorithms.GuillotineContainer.FreeRectChoiceHeuristic;
+import com.fox.brian.binpack.algorithms.GuillotineContainer.GuillotineSplitHeuristic;
+import com.fox.brian.binpack.util.Rect;
+
+public class FitIndexTest extends AbstractTest {
+	
+	/**
+	 * @return bins with fractional sizes, which leave the free rectangles 
+	 *         of a merging container slightly overlapping.
+	 */
+	private ArrayList<Bin<Integer>> fractionalBins(int count) {
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>();
+		for (int i = 0; i < count; i++)
+			bins.add(new Bin<Integer>(new Integer(i), 1 + (i * 37) % 53 + (i % 4) * 0.1F, 
+					1 + (i * 11) % 59 + (i % 3) * 0.3F, "Dummy value"));
+		return bins;
+	}
+	
+	private ArrayList<Rect> pack(FitIndex index, boolean merge, FreeRectChoiceHeuristic method, 
+			GuillotineSplitHeuristic split, ArrayList<Bin<Integer>> bins) {
+		return pack(300, index, merge, method, split, bins);
+	}
+	
+	private ArrayList<Rect> pack(float size, FitIndex index, boolean merge, FreeRectChoiceHeuristic method, 
+			GuillotineSplitHeuristic split, ArrayList<Bin<Integer>> bins) {
+		GuillotineContainer<Integer> bin = new GuillotineContainer<Integer>(size, size, 0, 0);
+		bin.setFitIndex(index);
+		ArrayList<Rect> placed = new ArrayList<Rect>();
+		for (Bin<Integer> b : bins)
+			placed.add(bin.insert(b, merge, method, split));
+		
+		// Take every third one out again and fill the holes.
+		for (int i = 0; i < bins.size(); i += 3)
+			assertEquals(placed.get(i).height() > 0, bin.remove(bins.get(i)));
+		for (int i = 0; i < bins.size(); i += 3)
+			placed.add(bin.insert(new Bin<Integer>(bins.get(i)), merge, method, split));
+		return placed;
+	}
+	
+	private void assertSamePlaces(ArrayList<Rect> linear, ArrayList<Rect> sized, String run) {
+		assertEquals(linear.size(), sized.size());
+		for (int i = 0; i < linear.size(); i++) {
+			String at = run + " " + i;
+			assertEquals(at, linear.get(i).x(), sized.get(i).x(), 0);
+			assertEquals(at, linear.get(i).y(), sized.get(i).y(), 0);
+			assertEquals(at, linear.get(i).width(), sized.get(i).width(), 0);
+		}
+	}
+	
+	@Test
+	public void sizeOrderPacksLikeLinearScan() {
+		ArrayList<Bin<Integer>> bins = bins(200);
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values())
+			for (GuillotineSplitHeuristic split : GuillotineSplitHeuristic.values())
+				for (boolean merge : new boolean[] { false, true }) {
+					ArrayList<Rect> linear = pack(FitIndex.LinearScan, merge, method, split, bins);
+					ArrayList<Rect> sized = pack(FitIndex.SizeOrdered, merge, method, split, bins);
+					assertSamePlaces(linear, sized, method + " " + split + " " + merge);
+				}
+	}
+	
+	@Test
+	public void sizeOrderPacksFractionalSizesLikeLinearScan() {
+		ArrayList<Bin<Integer>> bins = fractionalBins(300);
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values())
+			for (GuillotineSplitHeuristic split : GuillotineSplitHeuristic.values()) {
+				ArrayList<Rect> linear = pack(500, FitIndex.LinearScan, true, method, split, bins);
+				ArrayList<Rect> sized = pack(500, FitIndex.SizeOrdered, true, method, split, bins);
+				assertSamePlaces(linear, sized, method + " " + split);
+			}
+	}
+
+}
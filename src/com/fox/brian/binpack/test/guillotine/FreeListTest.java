@@ -0,0 +1,96 @@
+package com.fox.brian.binpack.test.guillotine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.GuillotineContainer;
+import com.fox.brian.binpack.algorithms.GuillotineContainer.FreeRectChoiceHeuristic;
+import com.fox.brian.binpack.algorithms.GuillotineContainer.GuillotineSplitHeuristic;
+import com.fox.brian.binpack.util.Rect;
+
+public class FreeListTest extends AbstractTest {
+	
+	private Rect insert(GuillotineContainer<Integer> bin, float width, float height, FreeRectChoiceHeuristic method) {
+		return bin.insert(new Bin<Integer>(new Integer(0), width, height, "Dummy value"), false, 
+				method, GuillotineSplitHeuristic.SplitShorterAxis);
+	}
+	
+	/**
+	 * @return a 100x100 bin with a 40x30 rectangle in its corner, which 
+	 *         leaves a 60x30 free rectangle to its right and a 100x70 
+	 *         one below it.
+	 */
+	private GuillotineContainer<Integer> cornered(FreeRectChoiceHeuristic method) {
+		GuillotineContainer<Integer> bin = new GuillotineContainer<Integer>(100, 100, 0, 0);
+		Rect corner = insert(bin, 40, 30, method);
+		assertEquals(0, corner.x(), 0);
+		assertEquals(0, corner.y(), 0);
+		return bin;
+	}
+	
+	@Test
+	public void eachHeuristicChoosesItsFreeRectangle() {
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values()) {
+			// The 60x30 rectangle fits a 20x20 one better by every measure.
+			boolean best = method.name().startsWith("RectBest");
+			Rect placed = insert(cornered(method), 20, 20, method);
+			assertEquals(method.name(), best ? 40 : 0, placed.x(), 0);
+			assertEquals(method.name(), best ? 0 : 30, placed.y(), 0);
+			assertEquals(method.name(), 20, placed.width(), 0);
+			assertEquals(method.name(), 20, placed.height(), 0);
+		}
+	}
+	
+	@Test
+	public void perfectFitWinsOverTheScore() {
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values()) {
+			Rect placed = insert(cornered(method), 60, 30, method);
+			assertEquals(method.name(), 40, placed.x(), 0);
+			assertEquals(method.name(), 0, placed.y(), 0);
+		}
+	}
+	
+	@Test
+	public void rectangleThatFitsNowhereOverflows() {
+		GuillotineContainer<Integer> bin = cornered(FreeRectChoiceHeuristic.RectBestAreaFit);
+		assertEquals(0, insert(bin, 70, 80, FreeRectChoiceHeuristic.RectBestAreaFit).height(), 0);
+		assertTrue(bin.hasOverflow());
+		assertEquals(1, bin.getPlacedCount());
+	}
+	
+	@Test
+	public void longFreeListsStayConsistent() {
+		// Thousands of small bins without merging leave thousands of free 
+		// rectangles, and removals move rectangles within the free list.
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>();
+		for (int i = 0; i < 3000; i++)
+			bins.add(new Bin<Integer>(new Integer(i), 1 + (i * 7) % 13 + (i % 4) * 0.25F, 
+					1 + (i * 5) % 11 + (i % 3) * 0.5F, "Dummy value"));
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values()) {
+			GuillotineContainer<Integer> bin = new GuillotineContainer<Integer>(400, 400, 0, 0);
+			ArrayList<Bin<Integer>> held = new ArrayList<Bin<Integer>>();
+			for (Bin<Integer> b : bins) {
+				Bin<Integer> copy = new Bin<Integer>(b);
+				if (bin.insert(copy, false, method, GuillotineSplitHeuristic.SplitMinimizeArea).height() > 0)
+					held.add(copy);
+			}
+			assertTrue(method.name(), held.size() > 2000);
+			
+			// A removed bin leaves room for another of its size.
+			for (int i = 0; i < held.size(); i += 2) {
+				assertTrue(bin.remove(held.get(i)));
+				held.set(i, new Bin<Integer>(held.get(i)));
+				assertTrue(method.name(), bin.insert(held.get(i), false, method, 
+						GuillotineSplitHeuristic.SplitMinimizeArea).height() > 0);
+			}
+			assertEquals(held.size(), bin.getPlacedCount());
+			assertValid(bin);
+		}
+	}
+
+}
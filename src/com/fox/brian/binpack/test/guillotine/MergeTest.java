@@ -0,0 +1,80 @@
+package com.fox.brian.binpack.test.guillotine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.GuillotineContainer;
+import com.fox.brian.binpack.algorithms.GuillotineContainer.FreeRectChoiceHeuristic;
+import com.fox.brian.binpack.algorithms.GuillotineContainer.GuillotineSplitHeuristic;
+import com.fox.brian.binpack.util.Rect;
+
+public class MergeTest extends AbstractTest {
+	
+	private Rect insert(GuillotineContainer<Integer> bin, float width, float height, boolean merge) {
+		return bin.insert(new Bin<Integer>(new Integer(0), width, height, "Dummy value"), merge, 
+				FreeRectChoiceHeuristic.RectBestAreaFit, GuillotineSplitHeuristic.SplitShorterAxis);
+	}
+	
+	/**
+	 * @return the given number of 10x10 bins, placed without merging.
+	 */
+	private ArrayList<Bin<Integer>> row(GuillotineContainer<Integer> bin, int count) {
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>();
+		for (int i = 0; i < count; i++) {
+			Bin<Integer> b = new Bin<Integer>(new Integer(i), 10, 10, "Dummy value");
+			assertTrue(bin.insert(b, false, FreeRectChoiceHeuristic.RectBestAreaFit, 
+					GuillotineSplitHeuristic.SplitShorterAxis).height() > 0);
+			bins.add(b);
+		}
+		return bins;
+	}
+	
+	@Test
+	public void freedRectangleJoinsBothNeighbours() {
+		GuillotineContainer<Integer> bin = new GuillotineContainer<Integer>(50, 10, 0, 0);
+		ArrayList<Bin<Integer>> bins = row(bin, 5);
+		assertTrue(bin.remove(bins.get(0)));
+		assertTrue(bin.remove(bins.get(2)));
+		assertTrue(bin.remove(bins.get(4)));
+		
+		// The freed middle square joins the squares on both sides of it.
+		assertTrue(bin.remove(bins.get(3)));
+		assertEquals(10, insert(bin, 30, 10, false).height(), 0);
+	}
+	
+	@Test
+	public void runsOfFreeRectanglesMergeIntoOne() {
+		// The last bin stays, so the space is never simply reset.
+		GuillotineContainer<Integer> bin = new GuillotineContainer<Integer>(60, 10, 0, 0);
+		ArrayList<Bin<Integer>> bins = row(bin, 6);
+		assertTrue(bin.remove(bins.get(0)));
+		assertTrue(bin.remove(bins.get(2)));
+		assertTrue(bin.remove(bins.get(4)));
+		assertTrue(bin.remove(bins.get(1)));
+		
+		// The last one lines up a run of all five.
+		assertTrue(bin.remove(bins.get(3)));
+		assertEquals(10, insert(bin, 50, 10, false).height(), 0);
+	}
+	
+	@Test
+	public void mergesChainAcrossBothDirections() {
+		// The last row stays, so the space is never simply reset.
+		GuillotineContainer<Integer> bin = new GuillotineContainer<Integer>(20, 30, 0, 0);
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>();
+		for (int i = 0; i < 3; i++)
+			bins.addAll(row(bin, 2));
+		
+		// The last square freed joins its column, which then joins the 
+		// other column.
+		for (int i : new int[] { 0, 3, 2, 1 })
+			assertTrue(bin.remove(bins.get(i)));
+		assertEquals(20, insert(bin, 20, 20, false).height(), 0);
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.fox.brian.binpack.test.guillotine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.GuillotineContainer;
+import com.fox.brian.binpack.util.Rect;
+
+public class ResetTest extends AbstractTest {
+	
+	private ArrayList<Rect> pack(GuillotineContainer<Integer> bin, ArrayList<Bin<Integer>> bins) {
+		ArrayList<Rect> placed = new ArrayList<Rect>();
+		for (Bin<Integer> b : bins)
+			placed.add(bin.insert(b, true, 
+					GuillotineContainer.FreeRectChoiceHeuristic.RectBestAreaFit, 
+					GuillotineContainer.GuillotineSplitHeuristic.SplitShorterLeftoverAxis));
+		return placed;
+	}
+	
+	private void assertSameLayout(ArrayList<Rect> expected, ArrayList<Rect> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).x(), actual.get(i).x(), 0);
+			assertEquals(expected.get(i).y(), actual.get(i).y(), 0);
+			assertEquals(expected.get(i).height(), actual.get(i).height(), 0);
+		}
+	}
+	
+	@Test
+	public void resetContainerPacksLikeANewOne() {
+		ArrayList<Bin<Integer>> bins = bins(150);
+		ArrayList<Rect> fresh = pack(new GuillotineContainer<Integer>(200, 200, 0, 0), bins);
+		
+		// Fill a bin of another size past overflow first.
+		GuillotineContainer<Integer> bin = new GuillotineContainer<Integer>(50, 80, 0, 0);
+		pack(bin, bins);
+		bin.reset(200, 200);
+		assertEquals(0, bin.getPlacedCount());
+		assertEquals(0, bin.getUsedArea(), 0);
+		assertEquals(false, bin.hasOverflow());
+		assertSameLayout(fresh, pack(bin, bins));
+		assertEquals(bin.getPlacedCount(), bin.getBins().size());
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.fox.brian.binpack.test.guillotine;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.GuillotineContainer;
+
+public class StatisticsTest {
+
+	@Test
+	public void statisticsFollowInserts() {
+		GuillotineContainer<Integer> bin = new GuillotineContainer<Integer>(256, 256, 0, 0);
+		float[] vals = new float[]{30, 20, 50, 20, 10, 80, 90, 20 };
+		float area = 0;
+		for (int i = 0; i < vals.length; i += 2) {
+			bin.insert(new Bin<Integer>(new Integer(i), vals[i], vals[i+1], "Dummy value"), false, 
+					GuillotineContainer.FreeRectChoiceHeuristic.RectBestShortSideFit, 
+					GuillotineContainer.GuillotineSplitHeuristic.SplitLongerAxis);
+			area += vals[i] * vals[i+1];
+		}
+		
+		float maxx = 0;
+		float maxy = 0;
+		for (Bin<Integer> b : bin.getBins()) {
+			maxx = Math.max(maxx, b.getX() + b.getWidth());
+			maxy = Math.max(maxy, b.getY() + b.getHeight());
+		}
+		assertEquals(4, bin.getPlacedCount());
+		assertEquals(area, bin.getUsedArea(), 0);
+		assertEquals(maxx, bin.getMaxX(), 0);
+		assertEquals(maxy, bin.getMaxY(), 0);
+		assertEquals(area / (maxx * maxy), bin.score(), 0);
+		assertEquals(area / (256 * 256), bin.occupancy(), 0);
+	}
+
+}
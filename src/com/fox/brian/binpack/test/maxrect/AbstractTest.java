@@ -1,9 +1,10 @@
 package com.fox.brian.binpack.test.maxrect;
 
 import com.fox.brian.binpack.algorithms.MaxRectsContainer;
+import com.fox.brian.binpack.test.AbstractContainerTest;
 import com.fox.brian.binpack.util.Rect;
 
-public class AbstractTest {
+public class AbstractTest extends AbstractContainerTest {
 
 	
 	
@@ -0,0 +1,47 @@
+package com.fox.brian.binpack.test.maxrect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer;
+import com.fox.brian.binpack.util.Rect;
+
+public class ContactPointTest {
+	
+	private Rect insert(MaxRectsContainer<Integer> bin, Bin<Integer> b) {
+		return bin.insert(b, MaxRectsContainer.FreeRectChoiceHeuristic.RectContactPointRule);
+	}
+	
+	@Test
+	public void squaresTileTheBin() {
+		MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(256, 256);
+		for (int i = 0; i < 64; i++)
+			assertTrue(insert(bin, new Bin<Integer>(new Integer(i), 32, 32, "Dummy value")).height() > 0);
+		assertEquals(1, bin.Occupancy(), 0);
+	}
+	
+	@Test
+	public void holeIsFoundAfterRemoval() {
+		MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(256, 256);
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>();
+		for (int i = 0; i < 40; i++) {
+			Bin<Integer> b = new Bin<Integer>(new Integer(i), 32, 32, "Dummy value");
+			insert(bin, b);
+			bins.add(b);
+		}
+		Bin<Integer> hole = bin.getBins().get(20);
+		assertTrue(bin.remove(bins.get(20)));
+		
+		// The hole touches squares or walls on every side, so it beats the
+		// open space.
+		Rect again = insert(bin, new Bin<Integer>(new Integer(40), 32, 32, "Dummy value"));
+		assertEquals(hole.getX(), again.x(), 0);
+		assertEquals(hole.getY(), again.y(), 0);
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.fox.brian.binpack.test.maxrect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer.FreeRectChoiceHeuristic;
+import com.fox.brian.binpack.util.Rect;
+
+public class GlobalFitTest extends AbstractTest {
+
+	@Test
+	public void batchPlacementsStayInsideAndApart() {
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values())
+			for (MaxRectsContainer.SplitIndex index : MaxRectsContainer.SplitIndex.values()) {
+				ArrayList<Bin<Integer>> bins = bins(200);
+				MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(150, 150);
+				bin.setSplitIndex(index);
+				int placedCount = bin.insert(bins, method);
+				assertTrue(bin.hasOverflow());
+				assertEquals(placedCount, bin.getPlacedCount());
+
+				ArrayList<Bin<Integer>> placed = bin.getBins();
+				assertEquals(placedCount, placed.size());
+				for (int i = 0; i < placed.size(); i++)
+					assertSame(bins.get(bin.getInputIndex(i)).getObject(), placed.get(i).getObject());
+				assertValid(bin);
+			}
+	}
+
+	private void assertRescansAlike(ArrayList<Bin<Integer>> bins, float size) {
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values())
+			for (MaxRectsContainer.SplitIndex index : MaxRectsContainer.SplitIndex.values()) {
+				Rect[] expected = new Rect[bins.size()];
+				List<Integer> order = new ReferenceMaxRects(size, size).insert(bins, method, expected);
+				MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(size, size);
+				bin.setSplitIndex(index);
+				assertEquals(order.size(), bin.insert(bins, method));
+				
+				ArrayList<Bin<Integer>> placed = bin.getBins();
+				for (int k = 0; k < order.size(); k++) {
+					String at = method + " " + index + " " + k;
+					int i = order.get(k);
+					assertEquals(at, i, bin.getInputIndex(k));
+					assertEquals(at, expected[i].x(), placed.get(k).getX(), 0);
+					assertEquals(at, expected[i].y(), placed.get(k).getY(), 0);
+					assertEquals(at, expected[i].width() != bins.get(i).getWidth(), placed.get(k).isRotated());
+				}
+			}
+	}
+
+	@Test
+	public void batchPlacesLikeAFullRescan() {
+		// Far more bins than kept places, most of them alike, so that many 
+		// bins see all their places taken before they are placed.
+		assertRescansAlike(bins(300), 150);
+	}
+
+	@Test
+	public void batchPlacesFractionalSizesLikeAFullRescan() {
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>();
+		for (Bin<Integer> b : bins(300))
+			bins.add(new Bin<Integer>(b.getObject(), b.getWidth() * 0.7F, b.getHeight() * 1.3F, "Dummy value"));
+		assertRescansAlike(bins, 131.5F);
+	}
+
+	@Test
+	public void bestFitGoesFirst() {
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>();
+		bins.add(new Bin<Integer>(new Integer(0), 30, 30, "Dummy value"));
+		bins.add(new Bin<Integer>(new Integer(1), 100, 70, "Dummy value"));
+		MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(100, 100);
+
+		// The wide bin spans the container exactly, so it is placed first
+		// although it comes second.
+		assertEquals(2, bin.insert(bins, FreeRectChoiceHeuristic.RectBestShortSideFit));
+		assertFalse(bin.hasOverflow());
+		assertEquals(1, bin.getInputIndex(0));
+		assertEquals(0, bin.getInputIndex(1));
+		assertEquals(0, bin.getBins().get(0).getY(), 0);
+		assertEquals(70, bin.getBins().get(1).getY(), 0);
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.fox.brian.binpack.test.maxrect;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer.FreeRectChoiceHeuristic;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer.SplitIndex;
+import com.fox.brian.binpack.util.Rect;
+
+public class PruneTest extends AbstractTest {
+	
+	private void assertPrunesLikePairwise(ArrayList<Bin<Integer>> bins, float size) {
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values())
+			for (SplitIndex index : SplitIndex.values()) {
+				ReferenceMaxRects expected = new ReferenceMaxRects(size, size);
+				MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(size, size);
+				bin.setSplitIndex(index);
+				for (int i = 0; i < bins.size(); i++) {
+					Bin<Integer> b = bins.get(i);
+					Rect e = expected.insert(b.getWidth(), b.getHeight(), method);
+					Rect a = bin.Insert(b.getWidth(), b.getHeight(), method);
+					String at = method + " " + index + " " + i;
+					assertEquals(at, e.x(), a.x(), 0);
+					assertEquals(at, e.y(), a.y(), 0);
+					assertEquals(at, e.width(), a.width(), 0);
+					assertEquals(at, e.height(), a.height(), 0);
+				}
+			}
+	}
+	
+	@Test
+	public void prunesLikeEveryPair() {
+		assertPrunesLikePairwise(bins(400), 200);
+	}
+	
+	@Test
+	public void prunesFractionalSizesLikeEveryPair() {
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>();
+		for (Bin<Integer> b : bins(400))
+			bins.add(new Bin<Integer>(b.getObject(), b.getWidth() * 0.7F, b.getHeight() * 1.3F, "Dummy value"));
+		assertPrunesLikePairwise(bins, 173.5F);
+	}
+
+}
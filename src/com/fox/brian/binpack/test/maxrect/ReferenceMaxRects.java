@@ -0,0 +1,223 @@
+package com.fox.brian.binpack.test.maxrect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer.FreeRectChoiceHeuristic;
+import com.fox.brian.binpack.util.Rect;
+
+/**
+ * MaxRects the plain way, to check the indexed and cached container 
+ * against: every placement scores the whole free list, every split is 
+ * followed by a pass over every pair of free rectangles, and every round 
+ * of a batch scores every rectangle still waiting against the whole 
+ * free list.
+ */
+class ReferenceMaxRects {
+	
+	private final float binWidth;
+	private final float binHeight;
+	private final ArrayList<Rect> free = new ArrayList<Rect>();
+	private final ArrayList<Rect> used = new ArrayList<Rect>();
+	
+	/** The scores and the size of the last place found, turned or not. */
+	private float score1, score2;
+	private float placedWidth, placedHeight;
+	
+	
+	ReferenceMaxRects(float width, float height) {
+		binWidth = width;
+		binHeight = height;
+		free.add(new Rect(0, 0, width, height));
+	}
+	
+	
+	/**
+	 * Places one rectangle where the heuristic puts it.
+	 * 
+	 * @return where it went, with a height of 0 if it did not fit.
+	 */
+	Rect insert(float width, float height, FreeRectChoiceHeuristic method) {
+		Rect f = find(width, height, method);
+		if (f == null)
+			return new Rect();
+		Rect node = new Rect(f.x(), f.y(), placedWidth, placedHeight);
+		place(node);
+		return node;
+	}
+	
+	
+	/**
+	 * Places the bins best first: each round scores every bin still 
+	 * waiting at its best place and places the best one, the earliest in 
+	 * the list of equally good ones.
+	 * 
+	 * @param placed [out] where each bin went, or null if it did not fit.
+	 * @return the indices of the placed bins, in the order they were placed.
+	 */
+	List<Integer> insert(List<Bin<Integer>> bins, FreeRectChoiceHeuristic method, Rect[] placed) {
+		ArrayList<Integer> waiting = new ArrayList<Integer>();
+		for (int i = 0; i < bins.size(); i++)
+			waiting.add(i);
+		ArrayList<Integer> order = new ArrayList<Integer>();
+		while (true) {
+			int best = -1;
+			Rect bestNode = null;
+			float best1 = Float.MAX_VALUE;
+			float best2 = Float.MAX_VALUE;
+			for (int k = 0; k < waiting.size(); k++) {
+				Bin<Integer> b = bins.get(waiting.get(k));
+				Rect f = find(b.getWidth(), b.getHeight(), method);
+				if (f == null) {
+					// The free space only shrinks, so it never will fit.
+					waiting.remove(k--);
+					continue;
+				}
+				if (method == FreeRectChoiceHeuristic.RectContactPointRule)
+					score1 = -score1;
+				if (best < 0 || score1 < best1 || (score1 == best1 && score2 < best2)) {
+					best = k;
+					bestNode = new Rect(f.x(), f.y(), placedWidth, placedHeight);
+					best1 = score1;
+					best2 = score2;
+				}
+			}
+			if (best < 0)
+				return order;
+			place(bestNode);
+			placed[waiting.get(best)] = bestNode;
+			order.add(waiting.remove(best));
+		}
+	}
+	
+	
+	/**
+	 * @return the free rectangle the rectangle goes into, the earliest of 
+	 *         equally good ones, or null.  The scores and the size it 
+	 *         takes are left in the fields.
+	 */
+	private Rect find(float width, float height, FreeRectChoiceHeuristic method) {
+		Rect best = null;
+		score1 = method == FreeRectChoiceHeuristic.RectContactPointRule ? -1 : Float.MAX_VALUE;
+		score2 = Float.MAX_VALUE;
+		for (Rect f : free)
+			for (boolean turned : new boolean[] { false, true }) {
+				float w = turned ? height : width;
+				float h = turned ? width : height;
+				if (f.width() < w || f.height() < h)
+					continue;
+				float horizontal = Math.abs(f.width() - w);
+				float vertical = Math.abs(f.height() - h);
+				float s1, s2;
+				switch (method) {
+					case RectBestShortSideFit: 
+						s1 = Math.min(horizontal, vertical);
+						s2 = Math.max(horizontal, vertical);
+						break;
+					case RectBestLongSideFit: 
+						s1 = Math.max(horizontal, vertical);
+						s2 = Math.min(horizontal, vertical);
+						break;
+					case RectBestAreaFit: 
+						s1 = f.width() * f.height() - width * height;
+						s2 = Math.min(horizontal, vertical);
+						break;
+					case RectBottomLeftRule: 
+						s1 = f.y() + h;
+						s2 = f.x();
+						break;
+					default: 
+						// Bigger is better, and there is no second score.
+						s1 = -contactPoints(f.x(), f.y(), w, h);
+						s2 = Float.MAX_VALUE;
+				}
+				boolean better = method == FreeRectChoiceHeuristic.RectContactPointRule 
+						? -s1 > score1 
+						: s1 < score1 || (s1 == score1 && s2 < score2);
+				if (better) {
+					best = f;
+					placedWidth = w;
+					placedHeight = h;
+					score1 = method == FreeRectChoiceHeuristic.RectContactPointRule ? -s1 : s1;
+					score2 = s2;
+				}
+			}
+		return best;
+	}
+	
+	
+	private int contactPoints(float x, float y, float width, float height) {
+		int score = 0;
+		if (x == 0 || x + width == binWidth)
+			score += height;
+		if (y == 0 || y + height == binHeight)
+			score += width;
+		for (Rect u : used) {
+			if (u.x() == x + width || u.x() + u.width() == x)
+				score += overlap(u.y(), u.y() + u.height(), y, y + height);
+			if (u.y() == y + height || u.y() + u.height() == y)
+				score += overlap(u.x(), u.x() + u.width(), x, x + width);
+		}
+		return score;
+	}
+	
+	
+	private static float overlap(float start1, float end1, float start2, float end2) {
+		if (end1 < start2 || end2 < start1)
+			return 0;
+		return Math.min(end1, end2) - Math.max(start1, start2);
+	}
+	
+	
+	private void place(Rect node) {
+		int count = free.size();
+		for (int i = 0; i < count; i++)
+			if (split(free.get(i), node)) {
+				free.remove(i);
+				i--;
+				count--;
+			}
+		prune();
+		used.add(node);
+	}
+	
+	
+	private boolean split(Rect f, Rect node) {
+		if (node.x() >= f.x() + f.width() || node.x() + node.width() <= f.x() 
+				|| node.y() >= f.y() + f.height() || node.y() + node.height() <= f.y())
+			return false;
+		if (node.x() < f.x() + f.width() && node.x() + node.width() > f.x()) {
+			if (node.y() > f.y() && node.y() < f.y() + f.height())
+				free.add(new Rect(f.x(), f.y(), f.width(), node.y() - f.y()));
+			if (node.y() + node.height() < f.y() + f.height())
+				free.add(new Rect(f.x(), node.y() + node.height(), f.width(), 
+						f.y() + f.height() - (node.y() + node.height())));
+		}
+		if (node.y() < f.y() + f.height() && node.y() + node.height() > f.y()) {
+			if (node.x() > f.x() && node.x() < f.x() + f.width())
+				free.add(new Rect(f.x(), f.y(), node.x() - f.x(), f.height()));
+			if (node.x() + node.width() < f.x() + f.width())
+				free.add(new Rect(node.x() + node.width(), f.y(), 
+						f.x() + f.width() - (node.x() + node.width()), f.height()));
+		}
+		return true;
+	}
+	
+	
+	private void prune() {
+		for (int i = 0; i < free.size(); i++)
+			for (int j = i + 1; j < free.size(); j++) {
+				if (Rect.isContainedIn(free.get(i), free.get(j))) {
+					free.remove(i);
+					i--;
+					break;
+				}
+				if (Rect.isContainedIn(free.get(j), free.get(i))) {
+					free.remove(j);
+					j--;
+				}
+			}
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.fox.brian.binpack.test.maxrect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer;
+import com.fox.brian.binpack.util.Rect;
+
+public class RemovalTest {
+
+	private Rect insert(MaxRectsContainer<Integer> bin, Bin<Integer> b) {
+		return bin.insert(b, MaxRectsContainer.FreeRectChoiceHeuristic.RectBestShortSideFit);
+	}
+
+	private ArrayList<Bin<Integer>> grid(MaxRectsContainer<Integer> bin) {
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>();
+		for (int i = 0; i < 64; i++) {
+			Bin<Integer> b = new Bin<Integer>(new Integer(i), 32, 32, "Dummy value");
+			assertTrue(insert(bin, b).height() > 0);
+			bins.add(b);
+		}
+		return bins;
+	}
+
+	@Test
+	public void removedAreaIsReused() {
+		MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(256, 256);
+		ArrayList<Bin<Integer>> bins = grid(bin);
+		assertEquals(0, insert(bin, new Bin<Integer>(new Integer(64), 32, 32, "Dummy value")).height(), 0);
+
+		assertTrue(bin.remove(bins.get(10)));
+		assertFalse(bin.remove(bins.get(10)));
+		assertEquals(63, bin.getPlacedCount());
+		assertEquals(63 * 32 * 32, bin.getUsedArea(), 0);
+		assertEquals(63, bin.getBins().size());
+
+		Rect again = insert(bin, new Bin<Integer>(new Integer(65), 32, 32, "Dummy value"));
+		assertEquals(32, again.height(), 0);
+	}
+
+	@Test
+	public void removingEverythingFreesTheWholeBin() {
+		MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(256, 256);
+		for (Bin<Integer> b : grid(bin))
+			assertTrue(bin.remove(b));
+		assertEquals(0, bin.getPlacedCount());
+		assertEquals(256, insert(bin, new Bin<Integer>(new Integer(0), 256, 256, "Dummy value")).height(), 0);
+	}
+
+	@Test
+	public void compactionJoinsScatteredSpace() {
+		MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(256, 256);
+		ArrayList<Bin<Integer>> bins = grid(bin);
+		ArrayList<Bin<Integer>> kept = new ArrayList<Bin<Integer>>();
+		for (Bin<Integer> b : bins) {
+			Bin<Integer> placed = bin.getBins().get(bins.indexOf(b));
+			boolean odd = ((int) (placed.getX() / 32) + (int) (placed.getY() / 32)) % 2 == 1;
+			if (odd)
+				kept.add(b);
+		}
+		for (Bin<Integer> b : bins) {
+			if (!kept.contains(b))
+				assertTrue(bin.remove(b));
+		}
+
+		// Half the bin is free, but only in single squares.  Packed again, 
+		// the free half is mostly in one piece.
+		Bin<Integer> big = new Bin<Integer>(new Integer(100), 160, 160, "Dummy value");
+		assertEquals(0, insert(bin, big).height(), 0);
+		assertTrue(bin.compact(MaxRectsContainer.FreeRectChoiceHeuristic.RectBestShortSideFit));
+		assertEquals(32, bin.getPlacedCount());
+		assertTrue(insert(bin, big).height() > 0);
+
+		// The caller's bins are still the handles.
+		for (Bin<Integer> b : kept)
+			assertTrue(bin.remove(b));
+		assertEquals(1, bin.getPlacedCount());
+	}
+
+	@Test
+	public void resetContainerPacksLikeANewOne() {
+		MaxRectsContainer<Integer> fresh = new MaxRectsContainer<Integer>(256, 256);
+		MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(256, 256);
+		grid(fresh);
+		for (Bin<Integer> b : grid(bin))
+			if (b.getObject().intValue() % 3 == 0)
+				assertTrue(bin.remove(b));
+		
+		bin.reset(256, 256);
+		assertEquals(0, bin.getPlacedCount());
+		assertEquals(0, bin.getUsedArea(), 0);
+		assertEquals(fresh.getBins().size(), grid(bin).size());
+		for (int i = 0; i < fresh.getBins().size(); i++) {
+			assertEquals(fresh.getBins().get(i).getX(), bin.getBins().get(i).getX(), 0);
+			assertEquals(fresh.getBins().get(i).getY(), bin.getBins().get(i).getY(), 0);
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.fox.brian.binpack.test.maxrect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer.FreeRectChoiceHeuristic;
+import com.fox.brian.binpack.util.Rect;
+
+public class ScoringTest extends AbstractTest {
+	
+	/**
+	 * @return bins up to 70 wide, of which a container 60 wide has to 
+	 *         turn many.
+	 */
+	private ArrayList<Bin<Integer>> longBins(int count) {
+		ArrayList<Bin<Integer>> bins = new ArrayList<Bin<Integer>>();
+		for (int i = 0; i < count; i++)
+			bins.add(new Bin<Integer>(new Integer(i), 1 + (i * 29) % 70 + (i % 4) * 0.25F, 
+					1 + (i * 13) % 17 + (i % 3) * 0.5F, "Dummy value"));
+		return bins;
+	}
+	
+	private void assertSamePlace(Rect expected, Rect actual, String at) {
+		assertEquals(at, expected.x(), actual.x(), 0);
+		assertEquals(at, expected.y(), actual.y(), 0);
+		assertEquals(at, expected.width(), actual.width(), 0);
+		assertEquals(at, expected.height(), actual.height(), 0);
+	}
+	
+	@Test
+	public void turnedBinTakesTheTurnedSize() {
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values()) {
+			MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(30, 100);
+			Rect placed = bin.insert(new Bin<Integer>(new Integer(0), 80, 20, "Dummy value"), method);
+			assertSamePlace(new Rect(0, 0, 20, 80), placed, method.name());
+			Bin<Integer> b = bin.getBins().get(0);
+			assertTrue(method.name(), b.isRotated());
+			assertEquals(method.name(), 20, b.getWidth(), 0);
+			assertEquals(method.name(), 80, b.getHeight(), 0);
+		}
+	}
+	
+	@Test
+	public void turnedSizesScoreLikeTheReference() {
+		ArrayList<Bin<Integer>> bins = longBins(300);
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values()) {
+			ReferenceMaxRects expected = new ReferenceMaxRects(60, 400);
+			MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(60, 400);
+			for (int i = 0; i < bins.size(); i++) {
+				Bin<Integer> b = bins.get(i);
+				assertSamePlace(expected.insert(b.getWidth(), b.getHeight(), method), 
+						bin.insert(new Bin<Integer>(b), method), method + " " + i);
+			}
+			assertValid(bin);
+		}
+	}
+	
+	@Test
+	public void failedInsertLeavesNoTrace() {
+		// The scores and the placed size of a search are kept between 
+		// calls, so a search that finds nothing must not leak into the next.
+		ArrayList<Bin<Integer>> bins = bins(200);
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values()) {
+			ReferenceMaxRects expected = new ReferenceMaxRects(150, 150);
+			MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(150, 150);
+			for (int i = 0; i < bins.size(); i++) {
+				if (i % 5 == 0)
+					assertEquals(0, bin.Insert(151, 1, method).height(), 0);
+				Bin<Integer> b = bins.get(i);
+				assertSamePlace(expected.insert(b.getWidth(), b.getHeight(), method), 
+						bin.Insert(b.getWidth(), b.getHeight(), method), method + " " + i);
+			}
+		}
+	}
+	
+	@Test
+	public void resetContainerScoresAlike() {
+		ArrayList<Bin<Integer>> bins = longBins(200);
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values()) {
+			MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(60, 300);
+			ArrayList<Rect> first = new ArrayList<Rect>();
+			for (Bin<Integer> b : bins)
+				first.add(bin.Insert(b.getWidth(), b.getHeight(), method));
+			bin.reset(60, 300);
+			for (int i = 0; i < bins.size(); i++)
+				assertSamePlace(first.get(i), bin.Insert(bins.get(i).getWidth(), bins.get(i).getHeight(), method), 
+						method + " " + i);
+		}
+	}
+
+}
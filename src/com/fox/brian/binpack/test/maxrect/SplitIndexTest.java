@@ -0,0 +1,67 @@
+package com.fox.brian.binpack.test.maxrect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer.FreeRectChoiceHeuristic;
+import com.fox.brian.binpack.algorithms.MaxRectsContainer.SplitIndex;
+import com.fox.brian.binpack.util.Rect;
+
+public class SplitIndexTest extends AbstractTest {
+	
+	private ArrayList<Rect> pack(SplitIndex index, FreeRectChoiceHeuristic method, ArrayList<Bin<Integer>> bins) {
+		MaxRectsContainer<Integer> bin = new MaxRectsContainer<Integer>(300, 300);
+		bin.setSplitIndex(index);
+		ArrayList<Rect> placed = new ArrayList<Rect>();
+		for (Bin<Integer> b : bins)
+			placed.add(bin.insert(b, method));
+		
+		// Take every third one out again and fill the holes.
+		for (int i = 0; i < bins.size(); i += 3)
+			assertTrue(bin.remove(bins.get(i)));
+		for (int i = 0; i < bins.size(); i += 3)
+			placed.add(bin.insert(new Bin<Integer>(bins.get(i)), method));
+		return placed;
+	}
+	
+	@Test
+	public void gridPacksLikeLinearScan() {
+		ArrayList<Bin<Integer>> bins = bins(200);
+		for (FreeRectChoiceHeuristic method : FreeRectChoiceHeuristic.values()) {
+			ArrayList<Rect> linear = pack(SplitIndex.LinearScan, method, bins);
+			ArrayList<Rect> grid = pack(SplitIndex.UniformGrid, method, bins);
+			assertEquals(linear.size(), grid.size());
+			for (int i = 0; i < linear.size(); i++) {
+				assertEquals(method + " " + i, linear.get(i).x(), grid.get(i).x(), 0);
+				assertEquals(method + " " + i, linear.get(i).y(), grid.get(i).y(), 0);
+				assertEquals(method + " " + i, linear.get(i).width(), grid.get(i).width(), 0);
+			}
+		}
+	}
+	
+	@Test
+	public void gridIsEmptiedOnReset() {
+		ArrayList<Bin<Integer>> bins = bins(200);
+		MaxRectsContainer<Integer> linear = new MaxRectsContainer<Integer>(200, 200);
+		MaxRectsContainer<Integer> grid = new MaxRectsContainer<Integer>(300, 300);
+		grid.setSplitIndex(SplitIndex.UniformGrid);
+		for (Bin<Integer> b : bins)
+			grid.insert(b, FreeRectChoiceHeuristic.RectBestAreaFit);
+		
+		grid.reset(200, 200);
+		for (Bin<Integer> b : bins) {
+			Rect expected = linear.insert(b, FreeRectChoiceHeuristic.RectBestAreaFit);
+			Rect actual = grid.insert(b, FreeRectChoiceHeuristic.RectBestAreaFit);
+			assertEquals(expected.x(), actual.x(), 0);
+			assertEquals(expected.y(), actual.y(), 0);
+			assertEquals(expected.width(), actual.width(), 0);
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.fox.brian.binpack.test.shelf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.ShelfContainer;
+import com.fox.brian.binpack.algorithms.ShelfContainer.ShelfChoiceHeuristic;
+import com.fox.brian.binpack.algorithms.ShelfNextFitContainer;
+import com.fox.brian.binpack.test.AbstractContainerTest;
+import com.fox.brian.binpack.util.Rect;
+
+public class ShelfTest extends AbstractContainerTest {
+	
+	@Test
+	public void placementsStayInsideAndApart() {
+		for (ShelfChoiceHeuristic method : ShelfChoiceHeuristic.values())
+			for (boolean wasteMap : new boolean[] { false, true }) {
+				ShelfContainer<Integer> bin = new ShelfContainer<Integer>(150, 150, wasteMap);
+				for (Bin<Integer> b : bins(200))
+					bin.insert(b, method);
+				assertTrue(bin.hasOverflow());
+				assertValid(bin);
+			}
+		
+		ShelfNextFitContainer<Integer> bin = new ShelfNextFitContainer<Integer>(150, 150);
+		for (Bin<Integer> b : bins(200))
+			bin.insert(b);
+		assertTrue(bin.hasOverflow());
+		assertValid(bin);
+	}
+	
+	@Test
+	public void squaresTileTheBin() {
+		for (ShelfChoiceHeuristic method : ShelfChoiceHeuristic.values()) {
+			ShelfContainer<Integer> bin = new ShelfContainer<Integer>(256, 256, false);
+			for (int i = 0; i < 64; i++)
+				assertTrue(bin.insert(new Bin<Integer>(new Integer(i), 32, 32, "Dummy value"), method).height() > 0);
+			assertEquals(1, bin.Occupancy(), 0);
+			assertEquals(8, bin.getShelfCount());
+			assertEquals(0, bin.insert(new Bin<Integer>(new Integer(64), 1, 1, "Dummy value"), method).height(), 0);
+		}
+		
+		ShelfNextFitContainer<Integer> bin = new ShelfNextFitContainer<Integer>(256, 256);
+		for (int i = 0; i < 64; i++)
+			assertTrue(bin.insert(new Bin<Integer>(new Integer(i), 32, 32, "Dummy value")).height() > 0);
+		assertEquals(1, bin.Occupancy(), 0);
+		assertEquals(0, bin.insert(new Bin<Integer>(new Integer(64), 1, 1, "Dummy value")).height(), 0);
+	}
+	
+	@Test
+	public void wasteMapFillsTheGapAbove() {
+		ShelfContainer<Integer> bin = new ShelfContainer<Integer>(100, 100, true);
+		bin.insert(new Bin<Integer>(new Integer(0), 60, 40, "Dummy value"), ShelfChoiceHeuristic.ShelfNextFit);
+		bin.insert(new Bin<Integer>(new Integer(1), 40, 10, "Dummy value"), ShelfChoiceHeuristic.ShelfNextFit);
+		
+		// Too wide for the first shelf, so it closes it, leaving 40x30 
+		// above the second bin.
+		Rect wide = bin.insert(new Bin<Integer>(new Integer(2), 100, 10, "Dummy value"), ShelfChoiceHeuristic.ShelfNextFit);
+		assertEquals(40, wide.y(), 0);
+		assertEquals(2, bin.getShelfCount());
+		
+		Rect gap = bin.insert(new Bin<Integer>(new Integer(3), 40, 30, "Dummy value"), ShelfChoiceHeuristic.ShelfNextFit);
+		assertEquals(60, gap.x(), 0);
+		assertEquals(10, gap.y(), 0);
+		assertValid(bin);
+	}
+	
+	@Test
+	public void nextFitKeepsTheShelfOnAMiss() {
+		ShelfNextFitContainer<Integer> bin = new ShelfNextFitContainer<Integer>(100, 50);
+		bin.insert(new Bin<Integer>(new Integer(0), 50, 40, "Dummy value"));
+		assertEquals(0, bin.insert(new Bin<Integer>(new Integer(1), 60, 20, "Dummy value")).height(), 0);
+		
+		// The miss did not close the shelf.
+		Rect r = bin.insert(new Bin<Integer>(new Integer(2), 50, 40, "Dummy value"));
+		assertEquals(50, r.x(), 0);
+		assertEquals(0, r.y(), 0);
+		assertValid(bin);
+	}
+	
+	@Test
+	public void resetStartsOver() {
+		ShelfContainer<Integer> shelf = new ShelfContainer<Integer>(40, 40, true);
+		ShelfNextFitContainer<Integer> nextFit = new ShelfNextFitContainer<Integer>(40, 40);
+		for (Bin<Integer> b : bins(50)) {
+			shelf.insert(b, ShelfChoiceHeuristic.ShelfBestAreaFit);
+			nextFit.insert(b);
+		}
+		shelf.reset(256, 256);
+		nextFit.reset(256, 256);
+		assertEquals(0, shelf.getPlacedCount());
+		assertFalse(shelf.hasOverflow());
+		assertEquals(1, shelf.getShelfCount());
+		assertEquals(0, nextFit.getPlacedCount());
+		assertFalse(nextFit.hasOverflow());
+		assertEquals(256, shelf.insert(new Bin<Integer>(new Integer(0), 256, 256, "Dummy value"), ShelfChoiceHeuristic.ShelfBestAreaFit).height(), 0);
+		assertEquals(256, nextFit.insert(new Bin<Integer>(new Integer(0), 256, 256, "Dummy value")).height(), 0);
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.fox.brian.binpack.test.skyline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.fox.brian.binpack.Bin;
+import com.fox.brian.binpack.algorithms.SkylineContainer;
+import com.fox.brian.binpack.algorithms.SkylineContainer.LevelChoiceHeuristic;
+import com.fox.brian.binpack.test.AbstractContainerTest;
+import com.fox.brian.binpack.util.Rect;
+
+public class SkylineTest extends AbstractContainerTest {
+	
+	@Test
+	public void placementsStayInsideAndApart() {
+		for (LevelChoiceHeuristic method : LevelChoiceHeuristic.values())
+			for (boolean wasteMap : new boolean[] { false, true }) {
+				SkylineContainer<Integer> bin = new SkylineContainer<Integer>(150, 150, wasteMap);
+				for (Bin<Integer> b : bins(200))
+					bin.insert(b, method);
+				assertTrue(bin.hasOverflow());
+				assertValid(bin);
+			}
+	}
+	
+	@Test
+	public void squaresTileTheBin() {
+		for (LevelChoiceHeuristic method : LevelChoiceHeuristic.values()) {
+			SkylineContainer<Integer> bin = new SkylineContainer<Integer>(256, 256, false);
+			for (int i = 0; i < 64; i++)
+				assertTrue(bin.insert(new Bin<Integer>(new Integer(i), 32, 32, "Dummy value"), method).height() > 0);
+			assertEquals(1, bin.Occupancy(), 0);
+			assertEquals(1, bin.getSkylineSize());
+			assertEquals(0, bin.insert(new Bin<Integer>(new Integer(64), 1, 1, "Dummy value"), method).height(), 0);
+		}
+	}
+	
+	@Test
+	public void wasteMapFillsTheGapBelow() {
+		SkylineContainer<Integer> bin = new SkylineContainer<Integer>(100, 100, true);
+		bin.insert(new Bin<Integer>(new Integer(0), 60, 40, "Dummy value"), LevelChoiceHeuristic.LevelBottomLeft);
+		bin.insert(new Bin<Integer>(new Integer(1), 40, 10, "Dummy value"), LevelChoiceHeuristic.LevelBottomLeft);
+		
+		// Too wide for either level, so it spans both and leaves 40x30 
+		// below it.
+		Rect wide = bin.insert(new Bin<Integer>(new Integer(2), 100, 10, "Dummy value"), LevelChoiceHeuristic.LevelBottomLeft);
+		assertEquals(40, wide.y(), 0);
+		
+		Rect gap = bin.insert(new Bin<Integer>(new Integer(3), 40, 30, "Dummy value"), LevelChoiceHeuristic.LevelBottomLeft);
+		assertEquals(60, gap.x(), 0);
+		assertEquals(10, gap.y(), 0);
+		assertValid(bin);
+	}
+	
+	@Test
+	public void resetStartsOver() {
+		SkylineContainer<Integer> bin = new SkylineContainer<Integer>(40, 40, true);
+		for (Bin<Integer> b : bins(50))
+			bin.insert(b, LevelChoiceHeuristic.LevelMinWasteFit);
+		bin.reset(256, 256);
+		assertEquals(0, bin.getPlacedCount());
+		assertFalse(bin.hasOverflow());
+		assertEquals(1, bin.getSkylineSize());
+		assertEquals(256, bin.insert(new Bin<Integer>(new Integer(0), 256, 256, "Dummy value"), LevelChoiceHeuristic.LevelMinWasteFit).height(), 0);
+	}
+
+}
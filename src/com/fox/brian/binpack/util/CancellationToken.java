@@ -0,0 +1,23 @@
+package com.fox.brian.binpack.util;
+
+/**
+ * Lets one thread ask a running search on another thread to stop.  The 
+ * search checks the token between packings and between inserts, and 
+ * returns the best layout it has completed so far.
+ */
+public class CancellationToken {
+
+	private volatile boolean cancelled = false;
+	
+	/**
+	 * Asks every search using this token to stop.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+	
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.fox.brian.binpack.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executors used by asynchronous packs.  A request mostly waits for 
+ * the search, so it runs on a cheap thread; the search itself runs on a 
+ * pool bounded by the number of cores.
+ */
+public class PackExecutors {
+	
+	private static Executor requests;
+	
+	
+	private PackExecutors() {
+	}
+	
+	
+	/**
+	 * @return a virtual thread per task on runtimes that have them, and a 
+	 *         cached pool of daemon threads on older ones.
+	 */
+	public static synchronized Executor requests() {
+		if (requests == null) {
+			try {
+				Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				requests = (Executor) m.invoke(null);
+			} catch (Exception e) {
+				requests = Executors.newCachedThreadPool(new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "binpack-request-" + count.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+			}
+		}
+		return requests;
+	}
+	
+	
+	/**
+	 * @return the pool the searches of asynchronous packs run on, the 
+	 *         common ForkJoinPool.
+	 */
+	public static ExecutorService compute() {
+		return ForkJoinPool.commonPool();
+	}
+
+}